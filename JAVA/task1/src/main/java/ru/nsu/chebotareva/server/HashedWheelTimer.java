@@ -0,0 +1,150 @@
+package ru.nsu.chebotareva.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Однопоточный таймер на основе хешированного колеса.
+ * Предназначен для работы внутри цикла селектора: постановка, перепланирование
+ * и отмена таймаута выполняются за O(1) без выделения памяти.
+ * @param <T> тип объекта, к которому привязан таймаут
+ */
+public final class HashedWheelTimer<T> {
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    private long currentTick;
+    private int scheduledCount;
+
+    /**
+     * Таймаут, привязанный к объекту. Один экземпляр переиспользуется
+     * при каждом перепланировании.
+     * @param <T> тип объекта, к которому привязан таймаут
+     */
+    public static final class Timeout<T> {
+        private final T owner;
+        private long deadlineNanos;
+        private int bucketIndex = -1;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        public Timeout(T owner) {
+            this.owner = owner;
+        }
+
+        public T owner() {
+            return owner;
+        }
+
+        public long deadlineNanos() {
+            return deadlineNanos;
+        }
+
+        public boolean isScheduled() {
+            return bucketIndex >= 0;
+        }
+    }
+
+    /**
+     * Создает таймер
+     * @param tickMillis длительность одного тика колеса в миллисекундах
+     * @param wheelSize количество ячеек колеса (округляется вверх до степени двойки)
+     * @param startNanos момент времени, соответствующий нулевому тику
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HashedWheelTimer(long tickMillis, int wheelSize, long startNanos) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis must be positive");
+        if (wheelSize <= 0) throw new IllegalArgumentException("wheelSize must be positive");
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        if (size <= 0) size = 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.startNanos = startNanos;
+        this.buckets = (Timeout<T>[]) new Timeout[size];
+        this.mask = size - 1;
+    }
+
+    private long tickOf(long nanos) {
+        return Math.max(0, (nanos - startNanos) / tickNanos);
+    }
+
+    /**
+     * Ставит таймаут на срабатывание в указанный момент; ранее запланированный
+     * срок того же таймаута отменяется
+     * @param timeout таймаут
+     * @param deadlineNanos момент срабатывания по {@link System#nanoTime()}
+     */
+    public void schedule(Timeout<T> timeout, long deadlineNanos) {
+        cancel(timeout);
+        long deadlineTick = Math.max(tickOf(deadlineNanos), currentTick);
+        timeout.deadlineNanos = deadlineNanos;
+        int index = (int) (deadlineTick & mask);
+        timeout.bucketIndex = index;
+        timeout.prev = null;
+        timeout.next = buckets[index];
+        if (buckets[index] != null) buckets[index].prev = timeout;
+        buckets[index] = timeout;
+        scheduledCount++;
+    }
+
+    /**
+     * Отменяет таймаут, если он запланирован
+     * @param timeout таймаут
+     */
+    public void cancel(Timeout<T> timeout) {
+        if (!timeout.isScheduled()) return;
+        if (timeout.prev != null) timeout.prev.next = timeout.next;
+        else buckets[timeout.bucketIndex] = timeout.next;
+        if (timeout.next != null) timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucketIndex = -1;
+        scheduledCount--;
+    }
+
+    /**
+     * Прокручивает колесо до текущего момента и вызывает обработчик для истекших таймаутов.
+     * Таймауты, срок которых наступит через несколько оборотов, остаются в своей ячейке.
+     * Обработчик может перепланировать или отменить только сработавший таймаут.
+     * @param nowNanos текущее время по {@link System#nanoTime()}
+     * @param onExpire обработчик истекшего таймаута
+     * @return количество сработавших таймаутов
+     */
+    public int advance(long nowNanos, Consumer<Timeout<T>> onExpire) {
+        long targetTick = tickOf(nowNanos);
+        int expired = 0;
+        // За один вызов достаточно одного полного оборота: остальные ячейки уже просмотрены
+        long lastTick = Math.min(targetTick, currentTick + buckets.length - 1);
+        for (long tick = currentTick; tick <= lastTick; tick++) {
+            int index = (int) (tick & mask);
+            Timeout<T> timeout = buckets[index];
+            while (timeout != null) {
+                Timeout<T> following = timeout.next;
+                if (timeout.deadlineNanos - nowNanos <= 0) {
+                    cancel(timeout);
+                    expired++;
+                    onExpire.accept(timeout);
+                }
+                timeout = following;
+            }
+        }
+        currentTick = targetTick;
+        return expired;
+    }
+
+    /**
+     * @return количество миллисекунд до следующего тика, или 0 если таймаутов нет
+     */
+    public long millisUntilNextTick(long nowNanos) {
+        if (scheduledCount == 0) return 0;
+        long nextTickNanos = startNanos + (tickOf(nowNanos) + 1) * tickNanos;
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextTickNanos - nowNanos));
+    }
+
+    /**
+     * @return количество запланированных таймаутов
+     */
+    public int size() {
+        return scheduledCount;
+    }
+}
@@ -12,6 +12,7 @@ import java.nio.channels.*;
 import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.security.*;
 import java.security.cert.X509Certificate;
 import java.nio.file.Path;
@@ -30,6 +31,30 @@ public class KeyServer {
     private final ConcurrentHashMap<String, CompletableFuture<KeyData>> keyCache = new ConcurrentHashMap<>();
     private final ConcurrentLinkedQueue<DeliveryTask> deliveryQueue = new ConcurrentLinkedQueue<>();
 
+    /** Длительность тика колеса таймеров соединений */
+    private static final long DEADLINE_TICK_MS = 100;
+    /** Количество ячеек колеса таймеров соединений */
+    private static final int DEADLINE_WHEEL_SIZE = 512;
+    static final int DEFAULT_HEADER_TIMEOUT_SEC = 10;
+    static final int DEFAULT_IDLE_TIMEOUT_SEC = 30;
+    static final int DEFAULT_WRITE_TIMEOUT_SEC = 60;
+
+    private final long headerTimeoutNanos;
+    private final long idleTimeoutNanos;
+    private final long writeTimeoutNanos;
+    private final HashedWheelTimer<ClientConnection> connectionTimer =
+            new HashedWheelTimer<>(DEADLINE_TICK_MS, DEADLINE_WHEEL_SIZE, System.nanoTime());
+    private final AtomicLong reapedOnHeaderTimeout = new AtomicLong();
+    private final AtomicLong reapedOnIdleTimeout = new AtomicLong();
+    private final AtomicLong reapedOnWriteTimeout = new AtomicLong();
+
+    /**
+     * Причина принудительного закрытия соединения по таймауту
+     */
+    private enum Deadline {
+        HEADER, IDLE, WRITE
+    }
+
     /**
      * Задача доставки сгенерированных ключей клиенту
      */
@@ -44,11 +69,41 @@ public class KeyServer {
     }
 
     public KeyServer(int port, int threads, String issuerDn, PrivateKey issuerKey) {
+        this(port, threads, issuerDn, issuerKey,
+             DEFAULT_HEADER_TIMEOUT_SEC, DEFAULT_IDLE_TIMEOUT_SEC, DEFAULT_WRITE_TIMEOUT_SEC);
+    }
+
+    /**
+     * Создает сервер с заданными сроками обслуживания соединений (0 отключает соответствующий срок)
+     * @param headerTimeoutSec время от подключения до получения имени целиком
+     * @param idleTimeoutSec максимальная пауза без чтения или записи данных
+     * @param writeTimeoutSec время на отправку ответа клиенту целиком
+     */
+    public KeyServer(int port, int threads, String issuerDn, PrivateKey issuerKey,
+                     int headerTimeoutSec, int idleTimeoutSec, int writeTimeoutSec) {
         this.serverPort = port;
         this.generatorThreadCount = threads;
         this.certificateIssuer = issuerDn;
         this.signingKey = issuerKey;
         this.keyGenerationPool = Executors.newFixedThreadPool(this.generatorThreadCount);
+        this.headerTimeoutNanos = TimeUnit.SECONDS.toNanos(headerTimeoutSec);
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSec);
+        this.writeTimeoutNanos = TimeUnit.SECONDS.toNanos(writeTimeoutSec);
+    }
+
+    /** @return количество соединений, закрытых из-за незавершенного запроса */
+    public long getReapedOnHeaderTimeout() {
+        return reapedOnHeaderTimeout.get();
+    }
+
+    /** @return количество соединений, закрытых из-за простоя */
+    public long getReapedOnIdleTimeout() {
+        return reapedOnIdleTimeout.get();
+    }
+
+    /** @return количество соединений, закрытых из-за незавершенной отправки ответа */
+    public long getReapedOnWriteTimeout() {
+        return reapedOnWriteTimeout.get();
     }
 
     private static void printUsage() {
@@ -58,6 +113,9 @@ public class KeyServer {
         System.out.println("      --threads  Generator thread count (required)");
         System.out.println("      --issuer   Issuer DN, e.g. CN=KeyIssuer,O=NSU (required)");
         System.out.println("      --key      Issuer private key PEM path (required)");
+        System.out.println("      --header-timeout  Seconds to receive the full name, 0 disables (default: " + DEFAULT_HEADER_TIMEOUT_SEC + ")");
+        System.out.println("      --idle-timeout    Seconds without read/write progress, 0 disables (default: " + DEFAULT_IDLE_TIMEOUT_SEC + ")");
+        System.out.println("      --write-timeout   Seconds to deliver the response, 0 disables (default: " + DEFAULT_WRITE_TIMEOUT_SEC + ")");
         System.out.println("  -?, --help    Show this help");
     }
 
@@ -66,6 +124,9 @@ public class KeyServer {
         int threads;
         String issuerDn;
         Path keyPath;
+        int headerTimeoutSec = DEFAULT_HEADER_TIMEOUT_SEC;
+        int idleTimeoutSec = DEFAULT_IDLE_TIMEOUT_SEC;
+        int writeTimeoutSec = DEFAULT_WRITE_TIMEOUT_SEC;
     }
 
     private static Config parseArgs(String[] args) {
@@ -91,6 +152,15 @@ public class KeyServer {
                     if (i + 1 >= args.length) { System.err.println("--key requires a value"); printUsage(); System.exit(2); }
                     keyPath = Paths.get(args[++i]);
                     break;
+                case "--header-timeout":
+                    cfg.headerTimeoutSec = parseTimeout(args, ++i, a);
+                    break;
+                case "--idle-timeout":
+                    cfg.idleTimeoutSec = parseTimeout(args, ++i, a);
+                    break;
+                case "--write-timeout":
+                    cfg.writeTimeoutSec = parseTimeout(args, ++i, a);
+                    break;
                 case "-?":
                 case "--help":
                 case "-help":
@@ -111,6 +181,19 @@ public class KeyServer {
         cfg.port = port; cfg.threads = threads; cfg.issuerDn = issuer; cfg.keyPath = keyPath; return cfg;
     }
 
+    private static int parseTimeout(String[] args, int valueIndex, String option) {
+        if (valueIndex >= args.length) { System.err.println(option + " requires a value"); printUsage(); System.exit(2); }
+        try {
+            int value = Integer.parseInt(args[valueIndex]);
+            if (value < 0) { System.err.println(option + " must be >= 0"); System.exit(2); }
+            return value;
+        } catch (NumberFormatException ex) {
+            System.err.println(option + " must be an integer");
+            System.exit(2);
+            return 0;
+        }
+    }
+
     public int run() throws Exception {
         System.out.printf("[KeyServer] Starting on port %d with %d generator threads, issuer='%s'%n",
                         serverPort, generatorThreadCount, certificateIssuer);
@@ -124,7 +207,9 @@ public class KeyServer {
             Map<SocketChannel, ClientConnection> activeConnections = new HashMap<>();
 
             while (true) {
-                selector.select();
+                long selectTimeoutMs = connectionTimer.millisUntilNextTick(System.nanoTime());
+                if (selectTimeoutMs > 0) selector.select(selectTimeoutMs);
+                else selector.select();
 
                 // Обработка очереди доставки результатов генерации
                 DeliveryTask deliveryItem;
@@ -152,7 +237,10 @@ public class KeyServer {
                                 ClientConnection connection = new ClientConnection();
                                 SelectionKey clientKey = clientChannel.register(selector, SelectionKey.OP_READ, connection);
                                 connection.associatedKey = clientKey;
+                                connection.acceptedAtNanos = System.nanoTime();
+                                connection.lastActivityNanos = connection.acceptedAtNanos;
                                 activeConnections.put(clientChannel, connection);
+                                armDeadline(connection);
                             }
                         } else if (currentKey.isReadable()) {
                             SocketChannel clientChannel = (SocketChannel) currentKey.channel();
@@ -166,9 +254,13 @@ public class KeyServer {
                                 closeClientConnection(clientChannel, activeConnections);
                                 continue;
                             }
+                            if (bytesRead > 0) connection.lastActivityNanos = System.nanoTime();
                             connection.inputBuffer.flip();
                             processClientRequest(currentKey, activeConnections, selector);
                             connection.inputBuffer.compact();
+                            // Пока ключ генерируется, сроки не отслеживаются; если ответ уже
+                            // поставлен в очередь на этой итерации, остаётся срок записи
+                            if (connection.nameReceptionComplete) armDeadline(connection);
 
                         } else if (currentKey.isWritable()) {
                             SocketChannel clientChannel = (SocketChannel) currentKey.channel();
@@ -177,7 +269,9 @@ public class KeyServer {
                                 currentKey.interestOps(SelectionKey.OP_READ);
                                     continue;
                             }
-                            clientChannel.write(connection.outputBuffer);
+                            if (clientChannel.write(connection.outputBuffer) > 0) {
+                                connection.lastActivityNanos = System.nanoTime();
+                            }
                             if (!connection.outputBuffer.hasRemaining()) {
                                 connection.outputBuffer = null;
                                 currentKey.interestOps(0);
@@ -192,21 +286,81 @@ public class KeyServer {
                         }
                     }
                 }
+
+                connectionTimer.advance(System.nanoTime(),
+                        timeout -> onDeadlineExpired(timeout.owner(), activeConnections));
             }
         }
     }
 
-    private static void closeClientConnection(SocketChannel ch, Map<SocketChannel, ClientConnection> map) {
-        map.remove(ch);
+    private void closeClientConnection(SocketChannel ch, Map<SocketChannel, ClientConnection> map) {
+        ClientConnection connection = map.remove(ch);
+        if (connection != null) connectionTimer.cancel(connection.deadline);
         try { ch.close(); } catch (IOException ignored) {}
     }
 
+    /**
+     * Ставит ближайший срок соединения в колесо таймеров.
+     * Чтение и запись лишь сдвигают отметку активности: срок простоя
+     * перепроверяется при срабатывании, без перепланирования на каждую операцию.
+     */
+    private void armDeadline(ClientConnection connection) {
+        long deadline = Long.MAX_VALUE;
+        if (connection.outputBuffer != null) {
+            if (writeTimeoutNanos > 0) deadline = connection.writeStartedNanos + writeTimeoutNanos;
+        } else if (!connection.nameReceptionComplete) {
+            if (headerTimeoutNanos > 0) deadline = connection.acceptedAtNanos + headerTimeoutNanos;
+        } else {
+            connectionTimer.cancel(connection.deadline);
+            return;
+        }
+        if (idleTimeoutNanos > 0) deadline = Math.min(deadline, connection.lastActivityNanos + idleTimeoutNanos);
+        if (deadline == Long.MAX_VALUE) {
+            connectionTimer.cancel(connection.deadline);
+        } else {
+            connectionTimer.schedule(connection.deadline, deadline);
+        }
+    }
+
+    private Deadline findExpiredDeadline(ClientConnection connection, long now) {
+        if (connection.outputBuffer != null) {
+            if (writeTimeoutNanos > 0 && now - connection.writeStartedNanos >= writeTimeoutNanos) return Deadline.WRITE;
+        } else if (!connection.nameReceptionComplete) {
+            if (headerTimeoutNanos > 0 && now - connection.acceptedAtNanos >= headerTimeoutNanos) return Deadline.HEADER;
+        } else {
+            return null;
+        }
+        if (idleTimeoutNanos > 0 && now - connection.lastActivityNanos >= idleTimeoutNanos) return Deadline.IDLE;
+        return null;
+    }
+
+    private void onDeadlineExpired(ClientConnection connection, Map<SocketChannel, ClientConnection> connections) {
+        Deadline expired = findExpiredDeadline(connection, System.nanoTime());
+        if (expired == null) {
+            armDeadline(connection);
+            return;
+        }
+        AtomicLong counter = switch (expired) {
+            case HEADER -> reapedOnHeaderTimeout;
+            case IDLE -> reapedOnIdleTimeout;
+            case WRITE -> reapedOnWriteTimeout;
+        };
+        counter.incrementAndGet();
+        SocketChannel clientChannel = (SocketChannel) connection.associatedKey.channel();
+        System.out.printf("[KeyServer] %s timeout expired, closing %s (reaped: header=%d idle=%d write=%d)%n",
+                expired, clientChannel, reapedOnHeaderTimeout.get(), reapedOnIdleTimeout.get(), reapedOnWriteTimeout.get());
+        closeClientConnection(clientChannel, connections);
+    }
+
     private void prepareResponseForClient(SelectionKey clientKey, Map<SocketChannel, ClientConnection> connections, byte[] responseData) {
         SocketChannel clientChannel = (SocketChannel) clientKey.channel();
         ClientConnection connection = connections.get(clientChannel);
         if (connection != null) {
             connection.outputBuffer = ByteBuffer.wrap(responseData);
+            connection.writeStartedNanos = System.nanoTime();
+            connection.lastActivityNanos = connection.writeStartedNanos;
             clientKey.interestOps(SelectionKey.OP_WRITE);
+            armDeadline(connection);
         }
     }
 
@@ -217,6 +371,10 @@ public class KeyServer {
         boolean requestLogged = false;
         SelectionKey associatedKey;
         ByteBuffer outputBuffer;
+        final HashedWheelTimer.Timeout<ClientConnection> deadline = new HashedWheelTimer.Timeout<>(this);
+        long acceptedAtNanos;
+        long lastActivityNanos;
+        long writeStartedNanos;
 
         String extractClientName(Charset charset) {
             byte[] nameArray = new byte[receivedNameBytes.size()];
@@ -329,7 +487,8 @@ public class KeyServer {
         int exit = 0;
         try {
             PrivateKey issuerKey = CryptoUtil.loadPrivateKeyFromPem(cfg.keyPath);
-            exit = new KeyServer(cfg.port, cfg.threads, cfg.issuerDn, issuerKey).run();
+            exit = new KeyServer(cfg.port, cfg.threads, cfg.issuerDn, issuerKey,
+                                 cfg.headerTimeoutSec, cfg.idleTimeoutSec, cfg.writeTimeoutSec).run();
         } catch (Exception e) {
             e.printStackTrace();
             exit = 1;
@@ -0,0 +1,294 @@
+package ru.nsu.chebotareva.bench;
+
+import ru.nsu.chebotareva.app.SortingMode;
+import ru.nsu.chebotareva.list.IterableStringList;
+import ru.nsu.chebotareva.list.LockProfile;
+import ru.nsu.chebotareva.list.LockProfiled;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time-to-sorted benchmark for every --mode of the application.
+ * <p>
+ * For each mode and thread count the list is prefilled, the sorters are started
+ * and an inserter calls addFirst at a fixed rate for the insert phase. Then the
+ * inserts stop and the run lasts until the list is sorted or the settle timeout expires.
+ * A sampler snapshots the list periodically and records its inversion count.
+ * <p>
+ * Writes samples.csv (inversions over time) and summary.csv (one row per run,
+ * with lock statistics for the modes that keep them when run with --profileLocks).
+ */
+public class ConvergenceBenchmark {
+    private static class BenchmarkConfig {
+        List<SortingMode> modes = List.of(SortingMode.values());
+        int[] threadCounts = {1, 2, 4};
+        int initialSize = 1000;
+        int insertRate = 200;
+        long insertMs = 3000;
+        long settleMs = 10000;
+        long sampleMs = 50;
+        long stepDelayMs = 0;
+        long swapDelayMs = 0;
+        int maxStringLength = 80;
+        String lengths = "uniform:10-40";
+        Path outDir = Path.of("build", "bench");
+        long seed = 42;
+        boolean profileLocks = false;
+    }
+
+    private static BenchmarkConfig parseCommandLineArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+        for (String arg : args) {
+            if (arg.startsWith("--modes=")) config.modes = parseModes(arg.substring("--modes=".length()));
+            else if (arg.startsWith("--threads=")) config.threadCounts = parseInts(arg.substring("--threads=".length()));
+            else if (arg.startsWith("--initial=")) config.initialSize = Integer.parseInt(arg.substring("--initial=".length()));
+            else if (arg.startsWith("--insertRate=")) config.insertRate = Integer.parseInt(arg.substring("--insertRate=".length()));
+            else if (arg.startsWith("--insertMs=")) config.insertMs = Long.parseLong(arg.substring("--insertMs=".length()));
+            else if (arg.startsWith("--settleMs=")) config.settleMs = Long.parseLong(arg.substring("--settleMs=".length()));
+            else if (arg.startsWith("--sampleMs=")) config.sampleMs = Long.parseLong(arg.substring("--sampleMs=".length()));
+            else if (arg.startsWith("--delayBetween=")) config.stepDelayMs = Long.parseLong(arg.substring("--delayBetween=".length()));
+            else if (arg.startsWith("--delayInside=")) config.swapDelayMs = Long.parseLong(arg.substring("--delayInside=".length()));
+            else if (arg.startsWith("--maxLen=")) config.maxStringLength = Integer.parseInt(arg.substring("--maxLen=".length()));
+            else if (arg.startsWith("--lengths=")) config.lengths = arg.substring("--lengths=".length());
+            else if (arg.startsWith("--out=")) config.outDir = Path.of(arg.substring("--out=".length()));
+            else if (arg.startsWith("--seed=")) config.seed = Long.parseLong(arg.substring("--seed=".length()));
+            else if (arg.equals("--profileLocks")) config.profileLocks = true;
+            else throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        return config;
+    }
+
+    private static List<SortingMode> parseModes(String value) {
+        List<SortingMode> modes = new ArrayList<>();
+        for (String name : value.split(",")) {
+            SortingMode mode = SortingMode.fromName(name.trim());
+            if (mode == null) throw new IllegalArgumentException("Unsupported list type: " + name);
+            modes.add(mode);
+        }
+        return modes;
+    }
+
+    private static int[] parseInts(String value) {
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) result[i] = Integer.parseInt(parts[i].trim());
+        return result;
+    }
+
+    /**
+     * Generates line lengths: uniform:MIN-MAX, fixed:N or geometric:MEAN.
+     */
+    private static final class LengthDistribution {
+        private final String kind;
+        private final int first;
+        private final int second;
+
+        LengthDistribution(String spec) {
+            String[] parts = spec.split(":", 2);
+            if (parts.length != 2) throw new IllegalArgumentException("Invalid --lengths: " + spec);
+            kind = parts[0];
+            switch (kind) {
+                case "uniform" -> {
+                    String[] bounds = parts[1].split("-", 2);
+                    first = Integer.parseInt(bounds[0]);
+                    second = Integer.parseInt(bounds[1]);
+                    if (first <= 0 || second < first) throw new IllegalArgumentException("Invalid --lengths: " + spec);
+                }
+                case "fixed", "geometric" -> {
+                    first = Integer.parseInt(parts[1]);
+                    second = first;
+                    if (first <= 0) throw new IllegalArgumentException("Invalid --lengths: " + spec);
+                }
+                default -> throw new IllegalArgumentException("Invalid --lengths: " + spec);
+            }
+        }
+
+        int next(Random random) {
+            return switch (kind) {
+                case "uniform" -> first + random.nextInt(second - first + 1);
+                case "geometric" -> 1 + (int) Math.min(100_000, -Math.log(1 - random.nextDouble()) * (first - 1));
+                default -> first;
+            };
+        }
+    }
+
+    private record RunResult(double firstSortedMs, double timeToSortedMs, double sortedSampleShare,
+                             double meanInversions, int finalSize, long operations, LockProfile lockProfile) {}
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkConfig config = parseCommandLineArgs(args);
+        LengthDistribution lengths = new LengthDistribution(config.lengths);
+        Files.createDirectories(config.outDir);
+        Path samplesPath = config.outDir.resolve("samples.csv");
+        Path summaryPath = config.outDir.resolve("summary.csv");
+
+        try (PrintWriter samples = new PrintWriter(Files.newBufferedWriter(samplesPath, StandardCharsets.UTF_8));
+             PrintWriter summary = new PrintWriter(Files.newBufferedWriter(summaryPath, StandardCharsets.UTF_8))) {
+            samples.println("mode,threads,insertRate,lengths,elapsedMs,phase,size,inversions");
+            summary.println("mode,threads,insertRate,lengths,initial,firstSortedMs,timeToSortedMs,sortedSampleShare,meanInversions,finalSize,operations,"
+                    + "lockAcquisitions,lockContended,lockWaitMs,lockRetries");
+
+            for (SortingMode mode : config.modes) {
+                for (int threads : config.threadCounts) {
+                    RunResult result = runOnce(mode, threads, config, lengths, samples);
+                    LockProfile profile = result.lockProfile();
+                    summary.printf(Locale.US, "%s,%d,%d,%s,%d,%.1f,%.1f,%.3f,%.1f,%d,%d,%s%n",
+                            mode.modeName(), threads, config.insertRate, config.lengths, config.initialSize,
+                            result.firstSortedMs(), result.timeToSortedMs(), result.sortedSampleShare(),
+                            result.meanInversions(), result.finalSize(), result.operations(),
+                            profile == null ? ",,," : String.format(Locale.US, "%d,%d,%.1f,%d", profile.acquisitions(),
+                                    profile.contended(), profile.waitNanos() / 1e6, profile.retries()));
+                    summary.flush();
+                    System.out.printf(Locale.US,
+                            "CONVERGENCE: mode=%s threads=%d timeToSorted=%.1fms sortedShare=%.3f meanInversions=%.1f size=%d%n",
+                            mode.modeName(), threads, result.timeToSortedMs(), result.sortedSampleShare(),
+                            result.meanInversions(), result.finalSize());
+                    if (profile != null) {
+                        System.out.printf("PROFILE: mode=%s threads=%d %s%n", mode.modeName(), threads, profile);
+                    }
+                }
+            }
+        }
+        System.out.println("Samples written to " + samplesPath.toAbsolutePath());
+        System.out.println("Summary written to " + summaryPath.toAbsolutePath());
+    }
+
+    /**
+     * Runs one mode with one thread count.
+     * timeToSortedMs is measured from the start of the sorters to the first sorted sample
+     * after the insert phase, or -1 if the list did not settle in time.
+     */
+    private static RunResult runOnce(SortingMode mode, int threads, BenchmarkConfig config,
+                                     LengthDistribution lengths, PrintWriter samples) throws Exception {
+        LongAdder operationCounter = new LongAdder();
+        SortingMode.Setup setup = mode.create(threads, config.stepDelayMs, config.swapDelayMs, operationCounter,
+                config.profileLocks);
+        IterableStringList list = setup.list();
+        Random random = new Random(config.seed);
+        for (int i = 0; i < config.initialSize; i++) {
+            insertLine(list, randomLine(random, lengths), config.maxStringLength);
+        }
+
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < setup.sorters().size(); i++) {
+            Thread t = new Thread(setup.sorters().get(i), "bench-" + mode.modeName() + "-" + i);
+            t.start();
+            workers.add(t);
+        }
+        Thread inserter = new Thread(() -> insertAtRate(list, random, lengths, config), "bench-inserter");
+        if (config.insertRate > 0) inserter.start();
+
+        double firstSortedMs = -1;
+        double timeToSortedMs = -1;
+        long sortedSamples = 0;
+        long sampleCount = 0;
+        double inversionSum = 0;
+        try {
+            long settleDeadline = start + TimeUnit.MILLISECONDS.toNanos(config.insertMs + config.settleMs);
+            while (System.nanoTime() < settleDeadline) {
+                TimeUnit.MILLISECONDS.sleep(config.sampleMs);
+                double elapsedMs = (System.nanoTime() - start) / 1e6;
+                boolean inserting = config.insertRate > 0 && inserter.isAlive();
+                List<String> snapshot = list.snapshot();
+                long inversions = countInversions(snapshot);
+                samples.printf(Locale.US, "%s,%d,%d,%s,%.1f,%s,%d,%d%n", mode.modeName(), threads, config.insertRate,
+                        config.lengths, elapsedMs, inserting ? "insert" : "settle", snapshot.size(), inversions);
+
+                sampleCount++;
+                inversionSum += inversions;
+                if (inversions == 0) {
+                    sortedSamples++;
+                    if (firstSortedMs < 0) firstSortedMs = elapsedMs;
+                    if (!inserting) {
+                        timeToSortedMs = elapsedMs;
+                        break;
+                    }
+                }
+            }
+        } finally {
+            inserter.interrupt();
+            for (Thread t : workers) t.interrupt();
+            inserter.join(2000);
+            for (Thread t : workers) t.join(2000);
+        }
+        samples.flush();
+        return new RunResult(firstSortedMs, timeToSortedMs, sortedSamples / (double) Math.max(1, sampleCount),
+                inversionSum / Math.max(1, sampleCount), list.size(), operationCounter.sum(),
+                list instanceof LockProfiled profiled ? profiled.lockProfile() : null);
+    }
+
+    private static void insertAtRate(IterableStringList list, Random random, LengthDistribution lengths,
+                                     BenchmarkConfig config) {
+        long start = System.nanoTime();
+        long inserted = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long elapsedNanos = System.nanoTime() - start;
+                if (elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(config.insertMs)) return;
+                long due = elapsedNanos * config.insertRate / 1_000_000_000L;
+                for (; inserted < due; inserted++) {
+                    insertLine(list, randomLine(random, lengths), config.maxStringLength);
+                }
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Inserts a line the way Main does: split into chunks, the first chunk ends up first.
+     */
+    private static void insertLine(IterableStringList list, String line, int maxLength) {
+        int lastStart = ((line.length() - 1) / maxLength) * maxLength;
+        for (int start = lastStart; start >= 0; start -= maxLength) {
+            list.addFirst(line.substring(start, Math.min(start + maxLength, line.length())));
+        }
+    }
+
+    private static String randomLine(Random random, LengthDistribution lengths) {
+        int length = lengths.next(random);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append((char) ('a' + random.nextInt(26)));
+        return sb.toString();
+    }
+
+    /**
+     * Counts pairs i &lt; j with values[i] &gt; values[j] by merge sort in O(n log n).
+     */
+    static long countInversions(List<String> values) {
+        String[] data = values.toArray(new String[0]);
+        String[] buffer = new String[data.length];
+        long inversions = 0;
+        for (int width = 1; width < data.length; width *= 2) {
+            for (int left = 0; left < data.length - width; left += 2 * width) {
+                int mid = left + width;
+                int right = Math.min(left + 2 * width, data.length);
+                int i = left, j = mid, k = left;
+                while (i < mid && j < right) {
+                    if (data[i].compareTo(data[j]) <= 0) {
+                        buffer[k++] = data[i++];
+                    } else {
+                        inversions += mid - i;
+                        buffer[k++] = data[j++];
+                    }
+                }
+                while (i < mid) buffer[k++] = data[i++];
+                while (j < right) buffer[k++] = data[j++];
+                System.arraycopy(buffer, left, data, left, right - left);
+            }
+        }
+        return inversions;
+    }
+}
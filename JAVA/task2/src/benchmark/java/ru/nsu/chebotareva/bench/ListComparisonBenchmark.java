@@ -0,0 +1,364 @@
+package ru.nsu.chebotareva.bench;
+
+import ru.nsu.chebotareva.app.SortingMode;
+import ru.nsu.chebotareva.list.CompactStringList;
+import ru.nsu.chebotareva.list.IterableStringList;
+import ru.nsu.chebotareva.list.LinkedStringList;
+import ru.nsu.chebotareva.list.NonBlockingStringList;
+import ru.nsu.chebotareva.list.SortableStringList;
+import ru.nsu.chebotareva.list.StripedArrayStringList;
+import ru.nsu.chebotareva.sort.ArrayListBubbleSorter;
+import ru.nsu.chebotareva.sort.LinkedListBubbleSorter;
+import ru.nsu.chebotareva.sort.OddEvenTranspositionEngine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Side-by-side measurements of the list engines, printed to stdout.
+ * <p>
+ * throughput: sorter steps per second of every engine, once without delays and
+ * once in a scenario with many threads and a delay inside the locks.
+ * time-to-sorted: how long linked and odd-even take to sort a small list with
+ * 1, 2 and 4 workers. readers: full snapshots per second while sorters run.
+ * heap: heap taken per entry by the linked, striped and compact lists.
+ * ingest: addFirst throughput of every --mode with its sorters running, and the
+ * latency of snapshots taken meanwhile.
+ */
+public class ListComparisonBenchmark {
+    private static class BenchmarkConfig {
+        List<String> measures = List.of("throughput", "time-to-sorted", "readers", "heap", "ingest");
+        int maxLen = 80;
+        int heapEntries = 200_000;
+    }
+
+    private static BenchmarkConfig parseCommandLineArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+        for (String arg : args) {
+            if (arg.startsWith("--measures=")) config.measures = List.of(arg.substring("--measures=".length()).split(","));
+            else if (arg.startsWith("--maxLen=")) config.maxLen = Integer.parseInt(arg.substring("--maxLen=".length()));
+            else if (arg.startsWith("--heapEntries=")) config.heapEntries = Integer.parseInt(arg.substring("--heapEntries=".length()));
+            else throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        return config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkConfig config = parseCommandLineArgs(args);
+        for (String measure : config.measures) {
+            switch (measure.trim()) {
+                case "throughput" -> {
+                    printThroughput(2000, 4, 0, 0, config.maxLen, 3000);
+                    printThroughput(900, 20, 12, 0, config.maxLen, 7000);
+                }
+                case "time-to-sorted" -> printTimeToSortedByWorkerCount(config.maxLen);
+                case "readers" -> printReaderThroughputUnderSorters(config.maxLen);
+                case "heap" -> printHeapFootprintPerEntry(config.heapEntries, config.maxLen);
+                case "ingest" -> printInsertThroughputAndReadLatency(config.maxLen);
+                default -> throw new IllegalArgumentException("Unknown measure: " + measure);
+            }
+        }
+    }
+
+    private static void printThroughput(int n, int threads, long insideMs, long betweenMs, int maxLen, long windowMs)
+            throws Exception {
+        Map<String, Double> results = new LinkedHashMap<>();
+        results.put("linked", measureSortable(new LinkedStringList(), "linked", n, threads, insideMs, betweenMs, maxLen, windowMs));
+        results.put("array", measureArray(n, threads, insideMs, betweenMs, maxLen, windowMs));
+        results.put("striped", measureSortable(new StripedArrayStringList(), "striped", n, threads, insideMs, betweenMs, maxLen, windowMs));
+        results.put("compact", measureSortable(new CompactStringList(), "compact", n, threads, insideMs, betweenMs, maxLen, windowMs));
+        results.put("nonblocking", measureSortable(new NonBlockingStringList(), "nonblocking", n, threads, insideMs, betweenMs, maxLen, windowMs));
+        results.put("oddeven", measureOddEven(n, threads, insideMs, betweenMs, maxLen, windowMs));
+        printComparison(results);
+    }
+
+    private static void printTimeToSortedByWorkerCount(int maxLen) throws Exception {
+        // A per-comparison delay stands in for real work, so the scaling shows even on one core
+        int n = 40;
+        long insideMs = 1;
+        long timeoutMs = 10000;
+
+        for (int threads : new int[]{1, 2, 4}) {
+            Map<String, Double> results = new LinkedHashMap<>();
+            LinkedStringList linked = new LinkedStringList();
+            fillListLinked(linked, n, maxLen);
+            List<Runnable> linkedSorters = new ArrayList<>();
+            for (int i = 0; i < threads; i++) linkedSorters.add(new LinkedListBubbleSorter(linked, 0, insideMs, new LongAdder()));
+            results.put("linked", measureTimeToSorted(linked, linkedSorters, "linked", timeoutMs));
+
+            OddEvenTranspositionEngine engine = new OddEvenTranspositionEngine(threads, 0, insideMs, new LongAdder());
+            fillListLinked(engine, n, maxLen);
+            results.put("oddeven", measureTimeToSorted(engine, engine.createWorkers(), "oddeven", timeoutMs));
+
+            System.out.printf(Locale.US, "TIME-TO-SORTED threads=%d: linked=%.1fms oddeven=%.1fms%n",
+                    threads, results.get("linked"), results.get("oddeven"));
+        }
+    }
+
+    private static void printReaderThroughputUnderSorters(int maxLen) throws Exception {
+        int n = 2000;
+        int threads = 4;
+        long windowMs = 2000;
+
+        Map<String, Double> results = new LinkedHashMap<>();
+        results.put("linked", measureReaders(new LinkedStringList(), "linked", n, threads, maxLen, windowMs));
+        results.put("nonblocking", measureReaders(new NonBlockingStringList(), "nonblocking", n, threads, maxLen, windowMs));
+        printComparison(results);
+    }
+
+    private static void printInsertThroughputAndReadLatency(int maxLen) throws Exception {
+        int n = 20_000;
+        for (SortingMode mode : SortingMode.values()) {
+            SortingMode.Setup setup = mode.create(2, 0, 0, new LongAdder());
+            IterableStringList list = setup.list();
+            List<Thread> workers = new ArrayList<>();
+            for (Runnable sorter : setup.sorters()) {
+                Thread t = new Thread(sorter, "bench-" + mode.modeName());
+                t.start();
+                workers.add(t);
+            }
+
+            List<Long> readNanos = Collections.synchronizedList(new ArrayList<>());
+            Thread reader = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long start = System.nanoTime();
+                    list.snapshot();
+                    readNanos.add(System.nanoTime() - start);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "bench-reader-" + mode.modeName());
+            reader.start();
+
+            Random rnd = new Random(11);
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) list.addFirst(randomLetters(rnd, 1 + rnd.nextInt(maxLen)));
+            double insertsPerSecond = n / ((System.nanoTime() - start) / 1e9);
+            TimeUnit.MILLISECONDS.sleep(200);
+
+            reader.interrupt();
+            reader.join(2000);
+            for (Thread t : workers) t.interrupt();
+            for (Thread t : workers) t.join(2000);
+
+            List<Long> reads = new ArrayList<>(readNanos);
+            Collections.sort(reads);
+            System.out.printf(Locale.US, "INGEST %s: inserts=%.1f/s reads=%d p50=%.2fms p99=%.2fms%n",
+                    mode.modeName(), insertsPerSecond, reads.size(),
+                    percentileMs(reads, 0.50), percentileMs(reads, 0.99));
+        }
+    }
+
+    private static double percentileMs(List<Long> sortedNanos, double p) {
+        if (sortedNanos.isEmpty()) return 0;
+        int index = (int) Math.min(sortedNanos.size() - 1, Math.ceil(p * sortedNanos.size()) - 1);
+        return sortedNanos.get(Math.max(0, index)) / 1e6;
+    }
+
+    private static void printHeapFootprintPerEntry(int n, int maxLen) {
+        Map<String, Double> results = new LinkedHashMap<>();
+        results.put("linked", measureHeapPerEntry(new LinkedStringList(), n, maxLen));
+        results.put("striped", measureHeapPerEntry(new StripedArrayStringList(), n, maxLen));
+        results.put("compact", measureHeapPerEntry(new CompactStringList(), n, maxLen));
+        for (Map.Entry<String, Double> e : results.entrySet()) {
+            System.out.printf(Locale.US, "HEAP %s: %.1f bytes/entry%n", e.getKey(), e.getValue());
+        }
+    }
+
+    private static double measureHeapPerEntry(IterableStringList list, int n, int maxLen) {
+        long before = usedHeap();
+        Random rnd = new Random(7);
+        for (int i = 0; i < n; i++) list.addFirst(randomLetters(rnd, 1 + rnd.nextInt(maxLen)));
+        long after = usedHeap();
+        if (list.size() != n) throw new IllegalStateException("Lost entries");
+        return (after - before) / (double) n;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void printComparison(Map<String, Double> results) {
+        String winnerName = null;
+        double winner = 0;
+        double loser = Double.MAX_VALUE;
+        StringBuilder line = new StringBuilder("COMPARISON:");
+        for (Map.Entry<String, Double> e : results.entrySet()) {
+            line.append(String.format(Locale.US, " %s=%.1f/s", e.getKey(), e.getValue()));
+            if (winnerName == null || e.getValue() > winner) {
+                winner = e.getValue();
+                winnerName = e.getKey();
+            }
+            loser = Math.min(loser, e.getValue());
+        }
+        double ratio = winner / Math.max(1e-9, loser);
+        System.out.printf(Locale.US, "%s winner=%s ratio=%.2f%n", line, winnerName, ratio);
+
+        for (Map.Entry<String, Double> e : results.entrySet()) {
+            printBar(String.format("%-11s", e.getKey()), e.getValue(), winner);
+        }
+    }
+
+    private static void printBar(String name, double value, double max) {
+        int width = 40;
+        int filled = (int) Math.round(value / Math.max(1e-9, max) * width);
+        StringBuilder sb = new StringBuilder(width);
+        for (int i = 0; i < filled; i++) sb.append('#');
+        for (int i = filled; i < width; i++) sb.append('.');
+        System.out.printf(Locale.US, "%s |%s| %.1f/s%n", name, sb, value);
+    }
+
+    private static double measureSortable(SortableStringList list, String name, int n, int threads,
+                                          long inside, long between, int maxLen, long windowMs) throws Exception {
+        fillListLinked(list, n, maxLen);
+        LongAdder steps = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            LinkedListBubbleSorter r = new LinkedListBubbleSorter(list, between, inside, steps);
+            Thread t = new Thread(r, "bench-" + name + "-" + i);
+            t.start();
+            workers.add(t);
+        }
+        TimeUnit.MILLISECONDS.sleep(windowMs);
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+        return steps.sum() * (1000.0 / windowMs);
+    }
+
+    /**
+     * Runs the workers until a snapshot comes out sorted.
+     * @return elapsed milliseconds, or the timeout if the list was not sorted in time
+     */
+    private static double measureTimeToSorted(IterableStringList list, List<Runnable> sorters,
+                                              String name, long timeoutMs) throws Exception {
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < sorters.size(); i++) {
+            Thread t = new Thread(sorters.get(i), "bench-" + name + "-" + i);
+            t.start();
+            workers.add(t);
+        }
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (!isSorted(list.snapshot()) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        double elapsedMs = (System.nanoTime() - start) / 1e6;
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+        return Math.min(elapsedMs, timeoutMs);
+    }
+
+    private static boolean isSorted(List<String> values) {
+        for (int i = 1; i < values.size(); i++) {
+            if (values.get(i - 1).compareTo(values.get(i)) > 0) return false;
+        }
+        return true;
+    }
+
+    private static double measureOddEven(int n, int threads, long inside, long between,
+                                         int maxLen, long windowMs) throws Exception {
+        LongAdder steps = new LongAdder();
+        OddEvenTranspositionEngine engine = new OddEvenTranspositionEngine(threads, between, inside, steps);
+        fillListLinked(engine, n, maxLen);
+        List<Thread> workers = new ArrayList<>();
+        int i = 0;
+        for (Runnable r : engine.createWorkers()) {
+            Thread t = new Thread(r, "bench-oddeven-" + i++);
+            t.start();
+            workers.add(t);
+        }
+        TimeUnit.MILLISECONDS.sleep(windowMs);
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+        return steps.sum() * (1000.0 / windowMs);
+    }
+
+    /**
+     * Measures full snapshots per second taken by one reader
+     * while sorter threads keep swapping without delays.
+     */
+    private static double measureReaders(SortableStringList list, String name, int n, int threads,
+                                         int maxLen, long windowMs) throws Exception {
+        fillListLinked(list, n, maxLen);
+        LongAdder steps = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            LinkedListBubbleSorter r = new LinkedListBubbleSorter(list, 0, 0, steps);
+            Thread t = new Thread(r, "bench-" + name + "-" + i);
+            t.start();
+            workers.add(t);
+        }
+        long snapshots = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+        while (System.nanoTime() < deadline) {
+            if (list.snapshot().size() < n) throw new IllegalStateException("Snapshot lost elements");
+            snapshots++;
+        }
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+        System.out.printf(Locale.US, "READERS %s: sorter steps=%.1f/s%n", name, steps.sum() * (1000.0 / windowMs));
+        return snapshots * (1000.0 / windowMs);
+    }
+
+    private static double measureArray(int n, int threads, long inside, long between,
+                                       int maxLen, long windowMs) throws Exception {
+        List<String> list = Collections.synchronizedList(new ArrayList<>());
+        fillListArray(list, n, maxLen);
+        LongAdder steps = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            ArrayListBubbleSorter r = new ArrayListBubbleSorter(list, between, inside, steps);
+            Thread t = new Thread(r, "bench-array-" + i);
+            t.start();
+            workers.add(t);
+        }
+        TimeUnit.MILLISECONDS.sleep(windowMs);
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+        return steps.sum() * (1000.0 / windowMs);
+    }
+
+    private static void fillListLinked(IterableStringList list, int n, int maxLen) {
+        Random r = new Random(42);
+        for (int i = 0; i < n; i++) {
+            String s = randomLetters(r, 10 + r.nextInt(30));
+            for (String c : chunk(s, maxLen)) list.addFirst(c);
+        }
+    }
+
+    private static void fillListArray(List<String> list, int n, int maxLen) {
+        Random r = new Random(42);
+        synchronized (list) {
+            for (int i = 0; i < n; i++) {
+                String s = randomLetters(r, 10 + r.nextInt(30));
+                for (String c : chunk(s, maxLen)) list.add(0, c);
+            }
+        }
+    }
+
+    private static String randomLetters(Random r, int len) {
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) sb.append((char) ('a' + r.nextInt(26)));
+        return sb.toString();
+    }
+
+    private static List<String> chunk(String s, int maxLen) {
+        List<String> res = new ArrayList<>();
+        for (int i = 0; i < s.length(); i += maxLen) {
+            res.add(s.substring(i, Math.min(i + maxLen, s.length())));
+        }
+        return res;
+    }
+}
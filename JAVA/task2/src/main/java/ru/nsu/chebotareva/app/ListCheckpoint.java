@@ -0,0 +1,117 @@
+package ru.nsu.chebotareva.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary checkpoint of a list snapshot.
+ * <p>
+ * Format: the magic number, the element count, then for every element its
+ * UTF-8 length as an int followed by the bytes, all big-endian. A checkpoint
+ * is written to a temporary file and moved over the old one, so a crash while
+ * writing leaves the previous checkpoint intact.
+ */
+public final class ListCheckpoint {
+    private static final int MAGIC = 0x534C4331; // "SLC1"
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    /** Largest region mapped at once when loading */
+    private static final long MAP_WINDOW_BYTES = 1L << 30;
+
+    private ListCheckpoint() {
+    }
+
+    /**
+     * Writes the strings sequentially through a FileChannel and replaces the checkpoint.
+     * @param values snapshot to write, in list order
+     * @param file checkpoint file
+     */
+    public static void write(List<String> values, Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // A heap buffer: a direct one per checkpoint would hold native memory until the
+            // GC happens to collect it, while the channel copies through a per-thread cached one
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+            buffer.putInt(MAGIC).putInt(values.size());
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < Integer.BYTES) drain(buffer, channel);
+                buffer.putInt(bytes.length);
+                int written = 0;
+                while (written < bytes.length) {
+                    if (!buffer.hasRemaining()) drain(buffer, channel);
+                    int length = Math.min(buffer.remaining(), bytes.length - written);
+                    buffer.put(bytes, written, length);
+                    written += length;
+                }
+            }
+            drain(buffer, channel);
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps the checkpoint into memory and decodes it.
+     * @param file checkpoint file
+     * @return the strings in list order, ready for a single addAllFirst
+     * @throws IOException if the file cannot be read or is not a valid checkpoint
+     */
+    public static List<String> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 2L * Integer.BYTES) throw new IOException("Checkpoint is too short: " + file);
+
+            long windowStart = 0;
+            MappedByteBuffer window = map(channel, windowStart, size);
+            if (window.getInt() != MAGIC) throw new IOException("Not a list checkpoint: " + file);
+            int count = window.getInt();
+            if (count < 0) throw new IOException("Corrupted checkpoint: " + file);
+            // Every element takes at least its length field, so a larger count cannot fit in the file
+            if (count > (size - 2L * Integer.BYTES) / Integer.BYTES) throw new IOException("Truncated checkpoint: " + file);
+
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (window.remaining() < Integer.BYTES) {
+                    windowStart += window.position();
+                    window = map(channel, windowStart, size);
+                    if (window.remaining() < Integer.BYTES) throw new IOException("Truncated checkpoint: " + file);
+                }
+                int length = window.getInt();
+                if (length < 0) throw new IOException("Corrupted checkpoint: " + file);
+                if (window.remaining() < length) {
+                    // Record crosses the window: remap starting at its bytes
+                    windowStart += window.position();
+                    window = map(channel, windowStart, size);
+                    if (window.remaining() < length) throw new IOException("Truncated checkpoint: " + file);
+                }
+                byte[] bytes = new byte[length];
+                window.get(bytes);
+                values.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return values;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long start, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW_BYTES, size - start));
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,144 @@
+package ru.nsu.chebotareva.app;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Exports a list snapshot as UTF-8 text, one string per line.
+ * The snapshot is sorted and encoded in parallel on the fork-join pool,
+ * and the encoded parts go to the channel in gathering writes, without being
+ * copied into one buffer. The list itself is only touched while the snapshot is taken.
+ */
+public final class ListExporter {
+    /** Strings encoded by one fork-join leaf */
+    private static final int LINES_PER_TASK = 4096;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private ListExporter() {
+    }
+
+    /**
+     * Writes the strings to the channel.
+     * @param snapshot strings to export; not modified
+     * @param sorted true to export in sorted order, false to keep the snapshot order
+     * @return number of bytes written
+     */
+    public static long export(List<String> snapshot, boolean sorted, WritableByteChannel out) throws IOException {
+        String[] values = snapshot.toArray(new String[0]);
+        if (sorted) Arrays.parallelSort(values);
+
+        byte[][] encoded = new byte[(values.length + LINES_PER_TASK - 1) / LINES_PER_TASK][];
+        ForkJoinPool.commonPool().invoke(new EncodeTask(values, encoded, 0, encoded.length));
+
+        long total = 0;
+        ByteBuffer[] buffers = new ByteBuffer[encoded.length];
+        for (int i = 0; i < encoded.length; i++) {
+            buffers[i] = ByteBuffer.wrap(encoded[i]);
+            total += encoded[i].length;
+        }
+        if (out instanceof GatheringByteChannel gathering) {
+            writeFully(buffers, gathering);
+        } else {
+            for (ByteBuffer buffer : buffers) writeFully(buffer, out);
+        }
+        return total;
+    }
+
+    /**
+     * Writes to a file, replacing its content.
+     */
+    public static long exportToFile(List<String> snapshot, boolean sorted, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return export(snapshot, sorted, channel);
+        }
+    }
+
+    /**
+     * Writes to the process's standard output, bypassing System.out's buffer.
+     * System.out is flushed first so earlier output stays in order.
+     */
+    public static long exportToStdout(List<String> snapshot, boolean sorted) throws IOException {
+        System.out.flush();
+        // The channel is not closed: closing it would close the process's stdout
+        FileChannel stdout = new FileOutputStream(FileDescriptor.out).getChannel();
+        return export(snapshot, sorted, stdout);
+    }
+
+    private static void writeFully(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        while (buffer.hasRemaining()) out.write(buffer);
+    }
+
+    /**
+     * A gathering write may stop early, e.g. at the system limit of buffers per call,
+     * so it is repeated from the first buffer not fully written.
+     */
+    private static void writeFully(ByteBuffer[] buffers, GatheringByteChannel out) throws IOException {
+        int first = 0;
+        while (first < buffers.length) {
+            out.write(buffers, first, buffers.length - first);
+            while (first < buffers.length && !buffers[first].hasRemaining()) first++;
+        }
+    }
+
+    /**
+     * Encodes the lines of parts [from, to), splitting until one part is left.
+     */
+    private static final class EncodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] values;
+        private final byte[][] encoded;
+        private final int from;
+        private final int to;
+
+        EncodeTask(String[] values, byte[][] encoded, int from, int to) {
+            this.values = values;
+            this.encoded = encoded;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EncodeTask(values, encoded, from, middle), new EncodeTask(values, encoded, middle, to));
+                return;
+            }
+            for (int part = from; part < to; part++) encoded[part] = encodePart(part);
+        }
+
+        private byte[] encodePart(int part) {
+            int first = part * LINES_PER_TASK;
+            int last = Math.min(values.length, first + LINES_PER_TASK);
+            byte[][] lines = new byte[last - first][];
+            int size = 0;
+            for (int i = first; i < last; i++) {
+                lines[i - first] = values[i].getBytes(StandardCharsets.UTF_8);
+                size += lines[i - first].length + LINE_SEPARATOR.length;
+            }
+            byte[] result = new byte[size];
+            int position = 0;
+            for (byte[] line : lines) {
+                System.arraycopy(line, 0, result, position, line.length);
+                position += line.length;
+                System.arraycopy(LINE_SEPARATOR, 0, result, position, LINE_SEPARATOR.length);
+                position += LINE_SEPARATOR.length;
+            }
+            return result;
+        }
+    }
+}
@@ -1,23 +1,37 @@
 package ru.nsu.chebotareva.app;
 
-import ru.nsu.chebotareva.list.LinkedStringList;
-import ru.nsu.chebotareva.sort.ArrayListBubbleSorter;
-import ru.nsu.chebotareva.sort.LinkedListBubbleSorter;
+import ru.nsu.chebotareva.list.IterableStringList;
+import ru.nsu.chebotareva.list.LockProfiled;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Main {
+    private static final int INPUT_BUFFER_CHARS = 1 << 20;
+    private static final int INGEST_BATCH_CHUNKS = 4096;
+    private static final int INGEST_QUEUE_CAPACITY = 16;
+
     private static class ApplicationConfig {
         String listType = "custom_linked";
         int workerCount = 2;
         long stepDelayMs = 100;
         long swapDelayMs = 100;
         int maxStringLength = 80;
+        boolean virtualSorters = false;
+        Path checkpointPath = null;
+        long checkpointIntervalSec = 30;
+        boolean profileLocks = false;
     }
 
     private static ApplicationConfig parseCommandLineArgs(String[] args) {
@@ -28,6 +42,10 @@ public class Main {
             else if (arg.startsWith("--delayBetween=")) config.stepDelayMs = Long.parseLong(arg.substring("--delayBetween=".length()));
             else if (arg.startsWith("--delayInside=")) config.swapDelayMs = Long.parseLong(arg.substring("--delayInside=".length()));
             else if (arg.startsWith("--maxLen=")) config.maxStringLength = Integer.parseInt(arg.substring("--maxLen=".length()));
+            else if (arg.startsWith("--sorterThreads=")) config.virtualSorters = "virtual".equalsIgnoreCase(arg.substring("--sorterThreads=".length()));
+            else if (arg.startsWith("--checkpoint=")) config.checkpointPath = Path.of(arg.substring("--checkpoint=".length()));
+            else if (arg.startsWith("--checkpointInterval=")) config.checkpointIntervalSec = Long.parseLong(arg.substring("--checkpointInterval=".length()));
+            else if (arg.equals("--profileLocks")) config.profileLocks = true;
         }
         return config;
     }
@@ -41,83 +59,172 @@ public class Main {
         return parts;
     }
 
-    public static void main(String[] args) throws Exception {
-        ApplicationConfig config = parseCommandLineArgs(args);
-        System.out.printf("Configuration: type=%s workers=%d delays: step=%dms swap=%dms maxLength=%d%n",
-                config.listType, config.workerCount, config.stepDelayMs, config.swapDelayMs, config.maxStringLength);
+    /**
+     * Chunks read since the previous command, in list order, followed by the command
+     * to run after inserting them: an empty line, ":stats", ":profile", ":export [file]", or null for none.
+     */
+    private record InputBatch(List<String> chunks, String command) {
+        static final InputBatch END_OF_INPUT = new InputBatch(List.of(), null);
+    }
 
-        AtomicLong operationCounter = new AtomicLong();
+    /**
+     * Reads stdin in large blocks and hands the chunks to the main thread in batches.
+     * A batch is flushed when it is full, before a command, and whenever the buffered
+     * input runs out, so interactive lines are not held back.
+     */
+    private static void readInput(BlockingQueue<InputBatch> ingestQueue, int maxStringLength) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in), INPUT_BUFFER_CHARS)) {
+            // Lines are kept in input order; a later line ends up before an earlier one
+            List<List<String>> pendingLines = new ArrayList<>();
+            int pendingChunks = 0;
+            String inputLine;
+            while ((inputLine = reader.readLine()) != null) {
+                boolean isCommand = isCommand(inputLine);
+                if (!isCommand) {
+                    List<String> stringParts = splitLongString(inputLine, maxStringLength);
+                    pendingLines.add(stringParts);
+                    pendingChunks += stringParts.size();
+                }
+                if (isCommand || pendingChunks >= INGEST_BATCH_CHUNKS || !reader.ready()) {
+                    ingestQueue.put(new InputBatch(toListOrder(pendingLines, pendingChunks), isCommand ? inputLine : null));
+                    pendingLines.clear();
+                    pendingChunks = 0;
+                }
+            }
+            if (pendingChunks > 0) ingestQueue.put(new InputBatch(toListOrder(pendingLines, pendingChunks), null));
+        } catch (IOException e) {
+            System.err.println("Failed to read input: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            ingestQueue.put(InputBatch.END_OF_INPUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isCommand(String line) {
+        return line.isEmpty() || ":stats".equals(line) || ":profile".equals(line)
+                || ":export".equals(line) || line.startsWith(":export ");
+    }
+
+    private static List<String> toListOrder(List<List<String>> lines, int chunkCount) {
+        List<String> chunks = new ArrayList<>(chunkCount);
+        for (int lineIndex = lines.size() - 1; lineIndex >= 0; lineIndex--) chunks.addAll(lines.get(lineIndex));
+        return chunks;
+    }
+
+    private static void runInteractive(IterableStringList stringList, List<Runnable> sorters,
+                                       ApplicationConfig config, LongAdder operationCounter) throws Exception {
+        // Virtual sorters unmount while sleeping or waiting for a node lock, so thousands fit on a few carriers
+        Thread.Builder sorterBuilder = config.virtualSorters ? Thread.ofVirtual() : Thread.ofPlatform();
         List<Thread> sorterThreads = new ArrayList<>();
+        for (int threadId = 0; threadId < sorters.size(); threadId++) {
+            String threadName = config.listType.toLowerCase() + "-sorter-" + threadId;
+            sorterThreads.add(sorterBuilder.name(threadName).start(sorters.get(threadId)));
+        }
 
-        if ("custom_linked".equalsIgnoreCase(config.listType)) {
-            LinkedStringList stringList = new LinkedStringList();
-            List<LinkedListBubbleSorter> sorters = new ArrayList<>();
-            for (int threadId = 0; threadId < config.workerCount; threadId++) {
-                LinkedListBubbleSorter sorter = new LinkedListBubbleSorter(stringList, config.stepDelayMs, config.swapDelayMs, operationCounter);
-                Thread workerThread = new Thread(sorter, "linked-sorter-" + threadId);
-                sorters.add(sorter);
-                sorterThreads.add(workerThread);
-                workerThread.start();
-            }
+        BlockingQueue<InputBatch> ingestQueue = new ArrayBlockingQueue<>(INGEST_QUEUE_CAPACITY);
+        Thread ingestThread = new Thread(() -> readInput(ingestQueue, config.maxStringLength), "ingest");
+        ingestThread.setDaemon(true);
+        ingestThread.start();
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
-                String inputLine;
-                while ((inputLine = reader.readLine()) != null) {
-                    if (inputLine.isEmpty()) {
-                        System.out.println("--- Current list state (size=" + stringList.size() + ", operations=" + operationCounter.get() + ") ---");
-                        for (String item : stringList) System.out.println(item);
-                        System.out.println("--- End of list ---");
-                    } else if (":stats".equals(inputLine)) {
-                        System.out.println("Total operations performed: " + operationCounter.get());
+        ScheduledExecutorService checkpointer = null;
+        if (config.checkpointPath != null && config.checkpointIntervalSec > 0) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointer.scheduleWithFixedDelay(() -> writeCheckpoint(stringList, config.checkpointPath),
+                    config.checkpointIntervalSec, config.checkpointIntervalSec, TimeUnit.SECONDS);
+        }
+
+        try {
+            InputBatch batch;
+            while ((batch = ingestQueue.take()) != InputBatch.END_OF_INPUT) {
+                if (!batch.chunks().isEmpty()) stringList.addAllFirst(batch.chunks());
+                if (batch.command() == null) continue;
+                if (batch.command().isEmpty()) {
+                    List<String> snapshot = stringList.snapshot();
+                    System.out.println("--- Current list state (size=" + snapshot.size() + ", operations=" + operationCounter.sum() + ") ---");
+                    ListExporter.exportToStdout(snapshot, false);
+                    System.out.println("--- End of list ---");
+                } else if (batch.command().startsWith(":export")) {
+                    exportSorted(stringList, batch.command().substring(":export".length()).trim());
+                } else if (":stats".equals(batch.command())) {
+                    System.out.println("Total operations performed: " + operationCounter.sum());
+                } else if (":profile".equals(batch.command())) {
+                    if (!(stringList instanceof LockProfiled profiled)) {
+                        System.out.println("Lock profiling is not available for " + config.listType);
+                    } else if (profiled.lockProfile() == null) {
+                        System.out.println("Lock profiling is off; start with --profileLocks");
                     } else {
-                        List<String> stringParts = splitLongString(inputLine, config.maxStringLength);
-                        for (int partIndex = stringParts.size() - 1; partIndex >= 0; partIndex--) {
-                            stringList.addFirst(stringParts.get(partIndex));
-                        }
+                        System.out.println("Lock profile (" + config.listType + "): " + profiled.lockProfile());
                     }
                 }
-            } finally {
-                for (Thread worker : sorterThreads) worker.interrupt();
-                for (Thread worker : sorterThreads) worker.join();
             }
-        } else if ("arraylist_sync".equalsIgnoreCase(config.listType)) {
-            List<String> backingList = new ArrayList<>();
-            List<String> synchronizedList = Collections.synchronizedList(backingList);
-            List<ArrayListBubbleSorter> sorters = new ArrayList<>();
-            for (int threadId = 0; threadId < config.workerCount; threadId++) {
-                ArrayListBubbleSorter sorter = new ArrayListBubbleSorter(synchronizedList, config.stepDelayMs, config.swapDelayMs, operationCounter);
-                Thread workerThread = new Thread(sorter, "array-sorter-" + threadId);
-                sorters.add(sorter);
-                sorterThreads.add(workerThread);
-                workerThread.start();
+        } finally {
+            if (checkpointer != null) {
+                checkpointer.shutdown();
+                checkpointer.awaitTermination(1, TimeUnit.MINUTES);
             }
+            for (Thread worker : sorterThreads) worker.interrupt();
+            for (Thread worker : sorterThreads) worker.join();
+            if (config.checkpointPath != null) writeCheckpoint(stringList, config.checkpointPath);
+        }
+    }
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
-                String inputLine;
-                while ((inputLine = reader.readLine()) != null) {
-                    if (inputLine.isEmpty()) {
-                        int currentSize;
-                        synchronized (synchronizedList) { currentSize = synchronizedList.size(); }
-                        System.out.println("--- Current list state (size=" + currentSize + ", operations=" + operationCounter.get() + ") ---");
-                        synchronized (synchronizedList) {
-                            for (String item : synchronizedList) System.out.println(item);
-                        }
-                        System.out.println("--- End of list ---");
-                    } else if (":stats".equals(inputLine)) {
-                        System.out.println("Total operations performed: " + operationCounter.get());
-                    } else {
-                        List<String> stringParts = splitLongString(inputLine, config.maxStringLength);
-                        for (int partIndex = stringParts.size() - 1; partIndex >= 0; partIndex--) {
-                            synchronized (synchronizedList) { synchronizedList.add(0, stringParts.get(partIndex)); }
-                        }
-                    }
-                }
-            } finally {
-                for (Thread worker : sorterThreads) worker.interrupt();
-                for (Thread worker : sorterThreads) worker.join();
+    /**
+     * Writes the sorted view to the file, or to stdout if no file is given.
+     */
+    private static void exportSorted(IterableStringList stringList, String fileName) {
+        List<String> snapshot = stringList.snapshot();
+        try {
+            if (fileName.isEmpty()) {
+                ListExporter.exportToStdout(snapshot, true);
+            } else {
+                long bytes = ListExporter.exportToFile(snapshot, true, Path.of(fileName));
+                System.out.println("Exported " + snapshot.size() + " strings (" + bytes + " bytes) to " + fileName);
             }
-        } else {
+        } catch (IOException e) {
+            System.err.println("Failed to export to " + (fileName.isEmpty() ? "stdout" : fileName) + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Takes a snapshot and writes it out. Only the snapshot touches the list,
+     * so the sorters are not blocked while the file is written.
+     */
+    private static void writeCheckpoint(IterableStringList stringList, Path checkpointPath) {
+        try {
+            ListCheckpoint.write(stringList.snapshot(), checkpointPath);
+        } catch (IOException e) {
+            System.err.println("Failed to write checkpoint " + checkpointPath + ": " + e.getMessage());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        ApplicationConfig config = parseCommandLineArgs(args);
+        System.out.printf("Configuration: type=%s workers=%d (%s) delays: step=%dms swap=%dms maxLength=%d%n",
+                config.listType, config.workerCount, config.virtualSorters ? "virtual" : "platform",
+                config.stepDelayMs, config.swapDelayMs, config.maxStringLength);
+
+        SortingMode mode = SortingMode.fromName(config.listType);
+        if (mode == null) {
             System.err.println("Unsupported list type: " + config.listType);
+            return;
+        }
+        LongAdder operationCounter = new LongAdder();
+        SortingMode.Setup setup = mode.create(config.workerCount, config.stepDelayMs, config.swapDelayMs, operationCounter,
+                config.profileLocks);
+        if (config.checkpointPath != null && Files.exists(config.checkpointPath)) {
+            List<String> restored = ListCheckpoint.read(config.checkpointPath);
+            setup.list().addAllFirst(restored);
+            System.out.println("Restored " + restored.size() + " strings from " + config.checkpointPath);
         }
+        runInteractive(setup.list(), setup.sorters(), config, operationCounter);
     }
 }
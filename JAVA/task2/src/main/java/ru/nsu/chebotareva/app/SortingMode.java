@@ -0,0 +1,138 @@
+package ru.nsu.chebotareva.app;
+
+import ru.nsu.chebotareva.list.CompactStringList;
+import ru.nsu.chebotareva.list.IterableStringList;
+import ru.nsu.chebotareva.list.LinkedStringList;
+import ru.nsu.chebotareva.list.NonBlockingStringList;
+import ru.nsu.chebotareva.list.SortableStringList;
+import ru.nsu.chebotareva.list.StripedArrayStringList;
+import ru.nsu.chebotareva.list.SynchronizedArrayStringList;
+import ru.nsu.chebotareva.sort.ArrayListBubbleSorter;
+import ru.nsu.chebotareva.sort.LinkedListBubbleSorter;
+import ru.nsu.chebotareva.sort.MergeInsertEngine;
+import ru.nsu.chebotareva.sort.OddEvenTranspositionEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * List implementations and their sorters, selectable with --mode.
+ */
+public enum SortingMode {
+    CUSTOM_LINKED("custom_linked") {
+        @Override
+        public Setup create(int workerCount, long stepDelayMs, long swapDelayMs, LongAdder operationCounter,
+                            boolean profileLocks) {
+            return bubbleSorted(new LinkedStringList(profileLocks), workerCount, stepDelayMs, swapDelayMs, operationCounter);
+        }
+    },
+    ARRAYLIST_SYNC("arraylist_sync") {
+        @Override
+        public Setup create(int workerCount, long stepDelayMs, long swapDelayMs, LongAdder operationCounter,
+                            boolean profileLocks) {
+            SynchronizedArrayStringList list = new SynchronizedArrayStringList(profileLocks);
+            List<Runnable> sorters = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                sorters.add(new ArrayListBubbleSorter(list.synchronizedList(), stepDelayMs, swapDelayMs,
+                        operationCounter, list.lockProfile()));
+            }
+            return new Setup(list, sorters);
+        }
+    },
+    STRIPED_ARRAY("striped_array") {
+        @Override
+        public Setup create(int workerCount, long stepDelayMs, long swapDelayMs, LongAdder operationCounter,
+                            boolean profileLocks) {
+            return bubbleSorted(new StripedArrayStringList(profileLocks), workerCount, stepDelayMs, swapDelayMs, operationCounter);
+        }
+    },
+    COMPACT("compact") {
+        @Override
+        public Setup create(int workerCount, long stepDelayMs, long swapDelayMs, LongAdder operationCounter,
+                            boolean profileLocks) {
+            return bubbleSorted(new CompactStringList(profileLocks), workerCount, stepDelayMs, swapDelayMs, operationCounter);
+        }
+    },
+    NONBLOCKING("nonblocking") {
+        @Override
+        public Setup create(int workerCount, long stepDelayMs, long swapDelayMs, LongAdder operationCounter,
+                            boolean profileLocks) {
+            return bubbleSorted(new NonBlockingStringList(), workerCount, stepDelayMs, swapDelayMs, operationCounter);
+        }
+    },
+    ODDEVEN("oddeven") {
+        @Override
+        public Setup create(int workerCount, long stepDelayMs, long swapDelayMs, LongAdder operationCounter,
+                            boolean profileLocks) {
+            OddEvenTranspositionEngine engine = new OddEvenTranspositionEngine(workerCount, stepDelayMs, swapDelayMs, operationCounter);
+            return new Setup(engine, engine.createWorkers());
+        }
+    },
+    /**
+     * Keeps the list sorted by merging batches of new strings. A single merger does
+     * all the work, so the worker count and the comparison delay are not used;
+     * the step delay is the pause before each merge.
+     */
+    MERGE_INSERT("merge_insert") {
+        @Override
+        public Setup create(int workerCount, long stepDelayMs, long swapDelayMs, LongAdder operationCounter,
+                            boolean profileLocks) {
+            MergeInsertEngine engine = new MergeInsertEngine(stepDelayMs, operationCounter);
+            return new Setup(engine, List.of(engine.createWorker()));
+        }
+    };
+
+    /**
+     * Shared list together with the workers that sort it.
+     * Each worker must run in its own thread.
+     */
+    public record Setup(IterableStringList list, List<Runnable> sorters) {}
+
+    private final String modeName;
+
+    SortingMode(String modeName) {
+        this.modeName = modeName;
+    }
+
+    public String modeName() {
+        return modeName;
+    }
+
+    /**
+     * Creates an empty list and its sorters.
+     * @param workerCount number of sorter workers
+     * @param stepDelayMs delay between steps in milliseconds
+     * @param swapDelayMs delay before each comparison in milliseconds
+     * @param operationCounter counter of comparisons; sorters may add to it in batches
+     * @param profileLocks whether lists that support it keep lock statistics
+     */
+    public abstract Setup create(int workerCount, long stepDelayMs, long swapDelayMs, LongAdder operationCounter,
+                                 boolean profileLocks);
+
+    /**
+     * Creates an empty list and its sorters without lock profiling.
+     */
+    public Setup create(int workerCount, long stepDelayMs, long swapDelayMs, LongAdder operationCounter) {
+        return create(workerCount, stepDelayMs, swapDelayMs, operationCounter, false);
+    }
+
+    /**
+     * @return the mode with the given --mode name (case-insensitive), or null if there is none
+     */
+    public static SortingMode fromName(String name) {
+        for (SortingMode mode : values()) {
+            if (mode.modeName.equalsIgnoreCase(name)) return mode;
+        }
+        return null;
+    }
+
+    private static Setup bubbleSorted(SortableStringList list, int workerCount, long stepDelayMs,
+                                      long swapDelayMs, LongAdder operationCounter) {
+        List<Runnable> sorters = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            sorters.add(new LinkedListBubbleSorter(list, stepDelayMs, swapDelayMs, operationCounter));
+        }
+        return new Setup(list, sorters);
+    }
+}
@@ -0,0 +1,303 @@
+package ru.nsu.chebotareva.list;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memory-compact list implementation for strings.
+ * Texts are copied into append-only byte pages: one byte per char when the string
+ * is Latin-1, two bytes (big-endian UTF-16) otherwise. An entry is an int id
+ * indexing parallel primitive arrays with its address and length, and the list
+ * itself is a circular int array of entry ids, so no String or node objects are
+ * kept per element. Sorters compare the stored bytes directly and swap ids.
+ * <p>
+ * Positions and stripe locking are the same as in StripedArrayStringList:
+ * the list occupies positions [head, 0), guarded by {@link StripeLocks}.
+ */
+public class CompactStringList implements SortableStringList, LockProfiled {
+    private static final int PAGE_SIZE = 1 << 20;
+    /** Set in entryLengths for entries stored as UTF-16 */
+    private static final int UTF16_FLAG = 1 << 31;
+
+    private final StripeLocks stripes;
+    /** Serializes prepends, which also own the pages and entry arrays */
+    private final ReentrantLock headLock = new ReentrantLock();
+
+    // Entry data never changes once written; the arrays are only replaced by larger copies
+    private volatile byte[][] pages = new byte[1][];
+    private volatile long[] entryAddresses = new long[StripeLocks.STRIPE_SIZE];
+    private volatile int[] entryLengths = new int[StripeLocks.STRIPE_SIZE];
+    private int pageCount;
+    private int pageOffset;
+    private int entryCount;
+
+    private volatile int[] ring = new int[StripeLocks.STRIPE_SIZE];
+    /** Position of the first element; the list occupies positions [head, 0) */
+    private volatile long head;
+
+    public CompactStringList() {
+        this(false);
+    }
+
+    /**
+     * @param profileLocks whether to keep statistics of the stripe locks
+     */
+    public CompactStringList(boolean profileLocks) {
+        this.stripes = new StripeLocks(profileLocks);
+    }
+
+    @Override
+    public void addFirst(String value) {
+        if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+
+        headLock.lock();
+        try {
+            long newHead = head - 1;
+            if (-newHead > ring.length) growRing(-newHead);
+            int[] current = ring;
+            // The slot is outside [head, 0), so no sorter can touch it before head is published
+            current[(int) newHead & (current.length - 1)] = appendEntry(value);
+            head = newHead;
+        } finally {
+            headLock.unlock();
+        }
+    }
+
+    /**
+     * Stores the whole batch and publishes it with one head update.
+     */
+    @Override
+    public void addAllFirst(List<String> values) {
+        for (String value : values) {
+            if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+        }
+        if (values.isEmpty()) return;
+
+        headLock.lock();
+        try {
+            long newHead = head - values.size();
+            if (-newHead > ring.length) growRing(-newHead);
+            int[] current = ring;
+            int mask = current.length - 1;
+            for (int i = 0; i < values.size(); i++) current[(int) (newHead + i) & mask] = appendEntry(values.get(i));
+            head = newHead;
+        } finally {
+            headLock.unlock();
+        }
+    }
+
+    @Override
+    public LockProfile lockProfile() {
+        return stripes.profile();
+    }
+
+    @Override
+    public int size() {
+        return (int) -head;
+    }
+
+    /**
+     * Returns an iterator over a snapshot taken at creation.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * Copies the entry ids under the locks and decodes the strings after releasing them.
+     */
+    @Override
+    public List<String> snapshot() {
+        int[] ids;
+        headLock.lock();
+        stripes.lockAll();
+        try {
+            int[] current = ring;
+            ids = new int[(int) -head];
+            for (long pos = head; pos < 0; pos++) ids[(int) (pos - head)] = current[(int) pos & (current.length - 1)];
+        } finally {
+            stripes.unlockAll();
+            headLock.unlock();
+        }
+
+        List<String> copy = new ArrayList<>(ids.length);
+        for (int id : ids) copy.add(decode(id));
+        return copy;
+    }
+
+    /**
+     * @return bytes of text held in the pages
+     */
+    public long storedTextBytes() {
+        headLock.lock();
+        try {
+            return pageCount == 0 ? 0 : (long) (pageCount - 1) * PAGE_SIZE + pageOffset;
+        } finally {
+            headLock.unlock();
+        }
+    }
+
+    /**
+     * Performs one complete pass of bubble sort on the list,
+     * see {@link StripeLocks#bubbleSortPass}.
+     */
+    @Override
+    public int performBubbleSortPass(long swapDelayMs, long stepDelayMs, LongAdder comparisonCounter) throws InterruptedException {
+        return stripes.bubbleSortPass(head, swapDelayMs, stepDelayMs, comparisonCounter, this::sortRun);
+    }
+
+    private int sortRun(long pos, long end, ComparisonTally tally) {
+        int[] current = ring;
+        int mask = current.length - 1;
+        int swapCount = 0;
+        for (; pos < end; pos++) {
+            tally.count();
+            int first = (int) pos & mask;
+            int second = (int) (pos + 1) & mask;
+            int firstId = current[first];
+            int secondId = current[second];
+            if (compareEntries(firstId, secondId) > 0) {
+                current[first] = secondId;
+                current[second] = firstId;
+                swapCount++;
+            }
+        }
+        return swapCount;
+    }
+
+    /**
+     * Compares two entries in the order of String.compareTo.
+     * Two Latin-1 entries are compared as unsigned bytes without decoding.
+     */
+    private int compareEntries(int firstId, int secondId) {
+        int firstLength = entryLengths[firstId];
+        int secondLength = entryLengths[secondId];
+        long firstAddress = entryAddresses[firstId];
+        long secondAddress = entryAddresses[secondId];
+        byte[] firstPage = pages[pageOf(firstAddress)];
+        byte[] secondPage = pages[pageOf(secondAddress)];
+        int firstOffset = offsetOf(firstAddress);
+        int secondOffset = offsetOf(secondAddress);
+
+        if ((firstLength & UTF16_FLAG) == 0 && (secondLength & UTF16_FLAG) == 0) {
+            return Arrays.compareUnsigned(firstPage, firstOffset, firstOffset + firstLength,
+                    secondPage, secondOffset, secondOffset + secondLength);
+        }
+
+        boolean firstUtf16 = (firstLength & UTF16_FLAG) != 0;
+        boolean secondUtf16 = (secondLength & UTF16_FLAG) != 0;
+        firstLength &= ~UTF16_FLAG;
+        secondLength &= ~UTF16_FLAG;
+        int common = Math.min(firstLength, secondLength);
+        for (int i = 0; i < common; i++) {
+            char a = charAt(firstPage, firstOffset, firstUtf16, i);
+            char b = charAt(secondPage, secondOffset, secondUtf16, i);
+            if (a != b) return a - b;
+        }
+        return firstLength - secondLength;
+    }
+
+    private static char charAt(byte[] page, int offset, boolean utf16, int index) {
+        if (!utf16) return (char) (page[offset + index] & 0xFF);
+        int at = offset + 2 * index;
+        return (char) (((page[at] & 0xFF) << 8) | (page[at + 1] & 0xFF));
+    }
+
+    private String decode(int id) {
+        int length = entryLengths[id];
+        long address = entryAddresses[id];
+        byte[] page = pages[pageOf(address)];
+        int offset = offsetOf(address);
+        if ((length & UTF16_FLAG) == 0) {
+            return new String(page, offset, length, StandardCharsets.ISO_8859_1);
+        }
+        length &= ~UTF16_FLAG;
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = charAt(page, offset, true, i);
+        return new String(chars);
+    }
+
+    /**
+     * Copies the text into the pages and records a new entry. Called under headLock.
+     * @return id of the entry
+     */
+    private int appendEntry(String value) {
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) latin1 = value.charAt(i) <= 0xFF;
+        int byteLength = latin1 ? value.length() : 2 * value.length();
+
+        long address = reserve(byteLength);
+        byte[] page = pages[pageOf(address)];
+        int offset = offsetOf(address);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (latin1) {
+                page[offset + i] = (byte) c;
+            } else {
+                page[offset + 2 * i] = (byte) (c >>> 8);
+                page[offset + 2 * i + 1] = (byte) c;
+            }
+        }
+
+        if (entryCount == entryLengths.length) {
+            // Copies are published before any new id, so readers of older ids may use either array
+            entryAddresses = Arrays.copyOf(entryAddresses, entryCount * 2);
+            entryLengths = Arrays.copyOf(entryLengths, entryCount * 2);
+        }
+        int id = entryCount++;
+        entryAddresses[id] = address;
+        entryLengths[id] = latin1 ? value.length() : value.length() | UTF16_FLAG;
+        return id;
+    }
+
+    /**
+     * Reserves bytes in the current page or starts a new one.
+     * Texts longer than a page get a page of their own.
+     */
+    private long reserve(int byteLength) {
+        if (pageCount == 0 || pageOffset + byteLength > pages[pageCount - 1].length) {
+            byte[][] current = pages;
+            if (pageCount == current.length) current = Arrays.copyOf(current, pageCount * 2);
+            current[pageCount++] = new byte[Math.max(PAGE_SIZE, byteLength)];
+            pages = current;
+            pageOffset = 0;
+        }
+        long address = ((long) (pageCount - 1) << 32) | pageOffset;
+        pageOffset += byteLength;
+        return address;
+    }
+
+    private static int pageOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Grows the ring to hold at least the given number of ids. Called under headLock;
+     * takes every stripe lock so no sorter sees the ids while they move.
+     */
+    private void growRing(long required) {
+        stripes.lockAll();
+        try {
+            int[] current = ring;
+            int capacity = current.length;
+            while (capacity < required) capacity *= 2;
+            int[] larger = new int[capacity];
+            for (long pos = head; pos < 0; pos++) {
+                larger[(int) pos & (larger.length - 1)] = current[(int) pos & (current.length - 1)];
+            }
+            ring = larger;
+        } finally {
+            stripes.unlockAll();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.nsu.chebotareva.list;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-pass comparison count of one sorter. Comparisons are counted in a plain
+ * field and added to the shared counter in batches, so sorters do not write
+ * a shared cache line on every comparison. With delays every comparison is
+ * published at once, since a batch would take too long to fill.
+ */
+final class ComparisonTally {
+    /** Comparisons counted locally before they are added to the shared counter */
+    private static final int COMPARISONS_PER_FLUSH = 1024;
+
+    private final LongAdder sharedCounter;
+    private final int flushThreshold;
+    private int pending;
+
+    ComparisonTally(LongAdder sharedCounter, boolean delayed) {
+        this.sharedCounter = sharedCounter;
+        this.flushThreshold = delayed ? 1 : COMPARISONS_PER_FLUSH;
+    }
+
+    void count() {
+        if (++pending >= flushThreshold) flush();
+    }
+
+    void flush() {
+        if (pending == 0) return;
+        sharedCounter.add(pending);
+        pending = 0;
+    }
+}
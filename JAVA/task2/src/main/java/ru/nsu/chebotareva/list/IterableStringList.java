@@ -15,6 +15,20 @@ public interface IterableStringList extends Iterable<String> {
      */
     void addFirst(String value);
 
+    /**
+     * Adds strings to the beginning of the list, keeping their order:
+     * the result is the same as calling addFirst for them from last to first.
+     * Implementations may insert the whole batch at once.
+     * @param values the strings to add
+     * @throws IllegalArgumentException if any value is null
+     */
+    default void addAllFirst(List<String> values) {
+        for (String value : values) {
+            if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+        }
+        for (int i = values.size() - 1; i >= 0; i--) addFirst(values.get(i));
+    }
+
     /**
      * Returns the current size of the list.
      * @return number of elements in the list
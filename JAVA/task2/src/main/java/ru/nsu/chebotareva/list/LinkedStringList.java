@@ -3,20 +3,35 @@ package ru.nsu.chebotareva.list;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Thread-safe doubly-linked list implementation for strings.
  * Uses fine-grained locking to allow concurrent access and modifications.
+ * Readers traverse optimistically with version stamps and fall back
+ * to shared node locks only when a concurrent writer invalidates a step.
  */
-public class LinkedStringList implements IterableStringList {
+public class LinkedStringList implements SortableStringList, LockProfiled {
+    /** Number of optimistic traversal attempts before a fully locked read */
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 4;
+
     private final ListNode sentinelHead;
     private final ListNode sentinelTail;
     private final AtomicInteger elementCount = new AtomicInteger(0);
+    /** Null unless profiling is on */
+    private final LockProfile lockProfile;
 
     public LinkedStringList() {
+        this(false);
+    }
+
+    /**
+     * @param profileLocks whether to keep statistics of the node locks
+     */
+    public LinkedStringList(boolean profileLocks) {
+        this.lockProfile = profileLocks ? new LockProfile() : null;
         this.sentinelHead = new ListNode(null);
         this.sentinelTail = new ListNode(null);
         sentinelHead.next = sentinelTail;
@@ -30,11 +45,11 @@ public class LinkedStringList implements IterableStringList {
         ListNode newNode = new ListNode(value);
 
         // Lock ordering: acquire sentinel head first, then first element
-        sentinelHead.lock.lock();
+        sentinelHead.lockNode(lockProfile);
         ListNode currentFirst;
         try {
             currentFirst = sentinelHead.next;
-            if (currentFirst != sentinelTail) currentFirst.lock.lock();
+            if (currentFirst != sentinelTail) currentFirst.lockNode(lockProfile);
             try {
                 // Insert new node between sentinel head and current first
                 newNode.prev = sentinelHead;
@@ -43,76 +58,184 @@ public class LinkedStringList implements IterableStringList {
                 if (currentFirst != sentinelTail) currentFirst.prev = newNode;
                 elementCount.incrementAndGet();
             } finally {
-                if (currentFirst != sentinelTail) currentFirst.lock.unlock();
+                if (currentFirst != sentinelTail) currentFirst.unlockNode();
+            }
+        } finally {
+            sentinelHead.unlockNode();
+        }
+    }
+
+    /**
+     * Links the batch into a segment first, then splices it in
+     * under a single acquisition of the head locks.
+     */
+    @Override
+    public void addAllFirst(List<String> values) {
+        if (values.isEmpty()) return;
+        ListNode segmentFirst = null;
+        ListNode segmentLast = null;
+        for (String value : values) {
+            if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+            ListNode node = new ListNode(value);
+            if (segmentLast == null) {
+                segmentFirst = node;
+            } else {
+                segmentLast.next = node;
+                node.prev = segmentLast;
+            }
+            segmentLast = node;
+        }
+
+        // Same lock ordering as addFirst
+        sentinelHead.lockNode(lockProfile);
+        try {
+            ListNode currentFirst = sentinelHead.next;
+            if (currentFirst != sentinelTail) currentFirst.lockNode(lockProfile);
+            try {
+                segmentFirst.prev = sentinelHead;
+                segmentLast.next = currentFirst;
+                sentinelHead.next = segmentFirst;
+                if (currentFirst != sentinelTail) currentFirst.prev = segmentLast;
+                elementCount.addAndGet(values.size());
+            } finally {
+                if (currentFirst != sentinelTail) currentFirst.unlockNode();
             }
         } finally {
-            sentinelHead.lock.unlock();
+            sentinelHead.unlockNode();
         }
     }
 
+    @Override
+    public LockProfile lockProfile() {
+        return lockProfile;
+    }
+
+    /**
+     * Verifies the structure of the list: every element's prev link points back
+     * at its predecessor (the tail sentinel's prev is not maintained), the walk
+     * from head reaches tail without cycles, and the number of nodes
+     * equals size(). Reads links without locks, so it must be called while no
+     * other thread modifies the list.
+     * @throws IllegalStateException describing the first violation found
+     */
+    public void checkInvariants() {
+        int expected = elementCount.get();
+        int count = 0;
+        ListNode current = sentinelHead;
+        if (current.prev != null) throw new IllegalStateException("Head sentinel has a predecessor");
+        while (current != sentinelTail) {
+            ListNode nextNode = current.next;
+            if (nextNode == null) throw new IllegalStateException("Broken next link after element " + count);
+            if (nextNode != sentinelTail) {
+                if (nextNode.prev != current) throw new IllegalStateException("prev link of element " + count + " does not point back");
+                if (nextNode.value == null) throw new IllegalStateException("Element " + count + " has no value");
+                if (++count > expected) throw new IllegalStateException("More nodes than size() = " + expected + ", or a cycle");
+            }
+            current = nextNode;
+        }
+        if (count != expected) throw new IllegalStateException("Found " + count + " nodes, size() = " + expected);
+        if (sentinelTail.next != null) throw new IllegalStateException("Tail sentinel has a successor");
+    }
+
     @Override
     public int size() {
         return elementCount.get();
     }
 
+    /**
+     * Returns an iterator over a snapshot taken at creation,
+     * so consuming it never holds node locks.
+     */
     @Override
     public Iterator<String> iterator() {
-        return new Iterator<String>() {
-            ListNode currentNode;
-            {
-                // Initialize at first real node with proper locking
-                sentinelHead.lock.lock();
+        return snapshot().iterator();
+    }
+
+    @Override
+    public List<String> snapshot() {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            List<String> copy = tryOptimisticSnapshot();
+            if (copy != null) return copy;
+            if (lockProfile != null) lockProfile.retried();
+        }
+        return lockedSnapshot();
+    }
+
+    /**
+     * Walks the list without blocking writers. A step is valid if the current node
+     * was not write-locked between reading its stamp and stamping its successor,
+     * i.e. the link current -> next did not change. When the successor is being
+     * written, the step is taken under shared locks and converted back to a stamp.
+     * @return copy of the list, or null if the current node changed and the position is lost
+     */
+    private List<String> tryOptimisticSnapshot() {
+        List<String> copy = new ArrayList<>(Math.max(0, size()));
+        ListNode current = sentinelHead;
+        long stamp = current.lock.tryOptimisticRead();
+        if (stamp == 0) {
+            stamp = current.lock.tryConvertToOptimisticRead(current.lock.readLock());
+        }
+
+        while (true) {
+            ListNode nextNode = current.next;
+            if (!current.lock.validate(stamp)) return null;
+            if (nextNode == sentinelTail) return copy;
+
+            long nextStamp = nextNode.lock.tryOptimisticRead();
+            if (!current.lock.validate(stamp)) return null;
+            if (nextStamp == 0) {
+                // Successor is being written: pin current and wait for the successor
+                long readStamp = current.lock.readLock();
                 try {
-                    currentNode = sentinelHead.next;
-                    if (currentNode == sentinelTail) currentNode = null;
-                    if (currentNode != null) currentNode.lock.lock();
+                    if (!current.lock.validate(stamp)) return null;
+                    nextNode = current.next;
+                    if (nextNode == sentinelTail) return copy;
+                    nextStamp = nextNode.lock.tryConvertToOptimisticRead(nextNode.lock.readLock());
                 } finally {
-                    sentinelHead.lock.unlock();
+                    current.lock.unlockRead(readStamp);
                 }
             }
 
-            @Override
-            public boolean hasNext() {
-                return currentNode != null;
-            }
-
-            @Override
-            public String next() {
-                if (currentNode == null) throw new NoSuchElementException("No more elements in the list");
-
-                String result = currentNode.value;
-
-                // Lock coupling: acquire next node's lock before releasing current
-                ListNode nextNode = currentNode.next;
-                if (nextNode == sentinelTail) nextNode = null;
-                if (nextNode != null) nextNode.lock.lock();
-                currentNode.lock.unlock();
-                currentNode = nextNode;
+            copy.add(nextNode.value);
+            current = nextNode;
+            stamp = nextStamp;
+        }
+    }
 
-                return result;
+    /**
+     * Fallback traversal with shared lock coupling: readers do not block
+     * each other, but writers wait for the reader to pass.
+     */
+    private List<String> lockedSnapshot() {
+        List<String> copy = new ArrayList<>(Math.max(0, size()));
+        ListNode current = sentinelHead;
+        long stamp = current.lock.readLock();
+        while (true) {
+            ListNode nextNode = current.next;
+            if (nextNode == sentinelTail) {
+                current.lock.unlockRead(stamp);
+                return copy;
             }
-        };
+            // Lock coupling: acquire next node's lock before releasing current
+            long nextStamp = nextNode.lock.readLock();
+            current.lock.unlockRead(stamp);
+            copy.add(nextNode.value);
+            current = nextNode;
+            stamp = nextStamp;
+        }
     }
 
     @Override
-    public List<String> snapshot() {
-        List<String> copy = new ArrayList<>(Math.max(0, size()));
-        Iterator<String> listIterator = iterator();
-        while (listIterator.hasNext()) {
-            copy.add(listIterator.next());
+    public int performBubbleSortPass(long swapDelayMs, long stepDelayMs, LongAdder comparisonCounter) throws InterruptedException {
+        ComparisonTally tally = new ComparisonTally(comparisonCounter, swapDelayMs > 0 || stepDelayMs > 0);
+        try {
+            return sortPass(swapDelayMs, stepDelayMs, tally);
+        } finally {
+            tally.flush();
         }
-        return copy;
     }
 
-    /**
-     * Performs one complete pass of bubble sort on the list.
-     * @param swapDelayMs delay between swap operations in milliseconds
-     * @param stepDelayMs delay between comparison steps in milliseconds
-     * @param operationCallback callback to execute after each comparison
-     * @return number of swaps performed
-     * @throws InterruptedException if the thread is interrupted
-     */
-    public int performBubbleSortPass(long swapDelayMs, long stepDelayMs, Runnable operationCallback) throws InterruptedException {
+    private int sortPass(long swapDelayMs, long stepDelayMs, ComparisonTally tally) throws InterruptedException {
         int swapCount = 0;
         ListNode current = sentinelHead;
 
@@ -120,17 +243,18 @@ public class LinkedStringList implements IterableStringList {
             ListNode nextCurrent = null; // Position for current in next iteration
 
             // Acquire lock on current node first (head-to-tail ordering)
-            current.lock.lock();
+            current.lockNode(lockProfile);
             try {
                 ListNode nodeA = current.next;
                 if (nodeA == sentinelTail) {
                     return swapCount; // End of list reached
                 }
 
-                nodeA.lock.lock();
+                nodeA.lockNode(lockProfile);
                 try {
                     // Verify adjacency after acquiring locks
                     if (current.next != nodeA || nodeA.prev != current) {
+                        if (lockProfile != null) lockProfile.retried();
                         nextCurrent = current; // Retry with same position
                     } else {
                         ListNode nodeB = nodeA.next;
@@ -138,10 +262,11 @@ public class LinkedStringList implements IterableStringList {
                             return swapCount; // Only one element left
                         }
 
-                        nodeB.lock.lock();
+                        nodeB.lockNode(lockProfile);
                         try {
                             // Verify adjacency of A and B
                             if (nodeA.next != nodeB || nodeB.prev != nodeA) {
+                                if (lockProfile != null) lockProfile.retried();
                                 nextCurrent = current; // Retry
                             } else {
                                 // Perform delay before comparison if specified
@@ -149,8 +274,7 @@ public class LinkedStringList implements IterableStringList {
                                     Thread.sleep(swapDelayMs);
                                 }
 
-                                // Execute callback for operation counting
-                                if (operationCallback != null) operationCallback.run();
+                                tally.count();
 
                                 // Compare and swap if needed
                                 if (nodeA.value.compareTo(nodeB.value) > 0) {
@@ -175,14 +299,14 @@ public class LinkedStringList implements IterableStringList {
                                 }
                             }
                         } finally {
-                            nodeB.lock.unlock();
+                            nodeB.unlockNode();
                         }
                     }
                 } finally {
-                    nodeA.lock.unlock();
+                    nodeA.unlockNode();
                 }
             } finally {
-                current.lock.unlock();
+                current.unlockNode();
             }
 
             // Delay between steps (outside of locks)
@@ -199,15 +323,40 @@ public class LinkedStringList implements IterableStringList {
     /**
      * Internal node class representing an element in the doubly-linked list.
      * Each node has its own lock for fine-grained concurrency control.
+     * Links change only under the node's write lock, so a valid stamp
+     * means the links read under it are consistent.
      */
     private static final class ListNode {
-        final ReentrantLock lock = new ReentrantLock();
-        String value;
+        final StampedLock lock = new StampedLock();
+        final String value;
         ListNode prev;
         ListNode next;
+        /** Stamp of the write lock, accessed only by its holder */
+        long writeStamp;
 
         ListNode(String value) {
             this.value = value;
         }
+
+        /**
+         * @param profile statistics to record the acquisition in, or null
+         */
+        void lockNode(LockProfile profile) {
+            long stamp;
+            if (profile == null) {
+                stamp = lock.writeLock();
+            } else if ((stamp = lock.tryWriteLock()) != 0) {
+                profile.acquired();
+            } else {
+                long waitStart = System.nanoTime();
+                stamp = lock.writeLock();
+                profile.acquiredAfterWait(System.nanoTime() - waitStart);
+            }
+            writeStamp = stamp;
+        }
+
+        void unlockNode() {
+            lock.unlockWrite(writeStamp);
+        }
     }
 }
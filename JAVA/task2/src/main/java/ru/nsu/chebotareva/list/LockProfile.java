@@ -0,0 +1,78 @@
+package ru.nsu.chebotareva.list;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock statistics of one list. Every acquisition first tries to take the lock
+ * without waiting, so the clock is read only when the lock was contended and
+ * an uncontended acquisition costs a single striped counter increment.
+ * <p>
+ * Lists keep statistics only when created with profiling on; otherwise they
+ * lock without touching any shared counter.
+ */
+public final class LockProfile {
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * Records an acquisition that did not have to wait.
+     */
+    public void acquired() {
+        acquisitions.increment();
+    }
+
+    /**
+     * Records an acquisition that had to wait.
+     * @param waitedNanos time spent waiting for the lock
+     */
+    public void acquiredAfterWait(long waitedNanos) {
+        acquisitions.increment();
+        contended.increment();
+        waitNanos.add(waitedNanos);
+    }
+
+    /**
+     * Records contended acquisitions counted elsewhere, e.g. by the JVM for monitors.
+     * @param count number of contended acquisitions
+     * @param waitedNanos total time spent waiting, or 0 if unknown
+     */
+    public void addContended(long count, long waitedNanos) {
+        contended.add(count);
+        waitNanos.add(waitedNanos);
+    }
+
+    /**
+     * Records a step or read repeated because a concurrent writer changed the list.
+     */
+    public void retried() {
+        retries.increment();
+    }
+
+    public long acquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long contended() {
+        return contended.sum();
+    }
+
+    public long waitNanos() {
+        return waitNanos.sum();
+    }
+
+    public long retries() {
+        return retries.sum();
+    }
+
+    @Override
+    public String toString() {
+        long total = acquisitions();
+        long contendedCount = contended();
+        return String.format(Locale.US, "acquisitions=%d contended=%d (%.2f%%) wait=%.1fms retries=%d",
+                total, contendedCount, 100.0 * contendedCount / Math.max(1, total),
+                waitNanos() / 1e6, retries());
+    }
+}
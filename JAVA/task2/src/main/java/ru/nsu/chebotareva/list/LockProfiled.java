@@ -0,0 +1,11 @@
+package ru.nsu.chebotareva.list;
+
+/**
+ * List that keeps statistics of its locks.
+ */
+public interface LockProfiled {
+    /**
+     * @return live statistics of this list's locks, or null if the list was created without profiling
+     */
+    LockProfile lockProfile();
+}
@@ -0,0 +1,225 @@
+package ru.nsu.chebotareva.list;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking singly-linked list implementation for strings.
+ * Readers never take locks: iterators are weakly consistent and see exactly
+ * the elements present when they were created. Writers publish changes with
+ * a single CAS and never wait for each other.
+ * <p>
+ * A swap never relinks existing nodes. The swapped pair is replaced by fresh
+ * copies and the old nodes are retired with their links frozen, so a reader
+ * standing on a retired node still walks a complete suffix of the list.
+ */
+public class NonBlockingStringList implements SortableStringList {
+    private static final int FREE = 0;
+    private static final int CLAIMED = 1;
+    private static final int RETIRED = 2;
+
+    private static final VarHandle NEXT;
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            NEXT = lookup.findVarHandle(ListNode.class, "next", ListNode.class);
+            STATE = lookup.findVarHandle(ListNode.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ListNode sentinelHead = new ListNode(null, null);
+    private final AtomicInteger elementCount = new AtomicInteger(0);
+
+    @Override
+    public void addFirst(String value) {
+        if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+
+        ListNode newNode = new ListNode(value, null);
+        while (true) {
+            ListNode currentFirst = sentinelHead.next;
+            newNode.next = currentFirst;
+            if (NEXT.compareAndSet(sentinelHead, currentFirst, newNode)) {
+                elementCount.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Links the batch into a private chain and publishes it with one CAS.
+     */
+    @Override
+    public void addAllFirst(List<String> values) {
+        if (values.isEmpty()) return;
+        ListNode segmentLast = null;
+        ListNode segmentFirst = null;
+        for (int i = values.size() - 1; i >= 0; i--) {
+            String value = values.get(i);
+            if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+            segmentFirst = new ListNode(value, segmentFirst);
+            if (segmentLast == null) segmentLast = segmentFirst;
+        }
+        while (true) {
+            ListNode currentFirst = sentinelHead.next;
+            segmentLast.next = currentFirst;
+            if (NEXT.compareAndSet(sentinelHead, currentFirst, segmentFirst)) {
+                elementCount.addAndGet(values.size());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return elementCount.get();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            ListNode currentNode = sentinelHead.next;
+
+            @Override
+            public boolean hasNext() {
+                return currentNode != null;
+            }
+
+            @Override
+            public String next() {
+                if (currentNode == null) throw new NoSuchElementException("No more elements in the list");
+                String result = currentNode.value;
+                currentNode = currentNode.next;
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public List<String> snapshot() {
+        List<String> copy = new ArrayList<>(Math.max(0, size()));
+        for (ListNode node = sentinelHead.next; node != null; node = node.next) {
+            copy.add(node.value);
+        }
+        return copy;
+    }
+
+    /**
+     * Performs one complete pass of bubble sort on the list.
+     * A step whose nodes are claimed by another writer is skipped instead of waited for.
+     */
+    @Override
+    public int performBubbleSortPass(long swapDelayMs, long stepDelayMs, LongAdder comparisonCounter) throws InterruptedException {
+        ComparisonTally tally = new ComparisonTally(comparisonCounter, swapDelayMs > 0 || stepDelayMs > 0);
+        try {
+            return sortPass(swapDelayMs, stepDelayMs, tally);
+        } finally {
+            tally.flush();
+        }
+    }
+
+    private int sortPass(long swapDelayMs, long stepDelayMs, ComparisonTally tally) throws InterruptedException {
+        int swapCount = 0;
+        ListNode current = sentinelHead;
+
+        while (current != null && !Thread.currentThread().isInterrupted()) {
+            ListNode nextCurrent;
+
+            // Delay before comparison, taken before claiming: claims only make other
+            // sorters skip the nodes, so holding them while sleeping protects nothing
+            if (swapDelayMs > 0) {
+                Thread.sleep(swapDelayMs);
+            }
+
+            if (!tryClaim(current)) {
+                nextCurrent = current.next; // Busy or retired: move on
+            } else {
+                try {
+                    ListNode nodeA = current.next;
+                    if (nodeA == null) return swapCount; // End of list reached
+                    if (!tryClaim(nodeA)) {
+                        nextCurrent = nodeA;
+                    } else {
+                        try {
+                            ListNode nodeB = nodeA.next;
+                            if (nodeB == null) return swapCount; // Only one element left
+                            if (!tryClaim(nodeB)) {
+                                nextCurrent = nodeA;
+                            } else {
+                                try {
+                                    tally.count();
+
+                                    if (nodeA.value.compareTo(nodeB.value) > 0) {
+                                        // Publish copies: current -> B' -> A' -> afterB
+                                        ListNode copyA = new ListNode(nodeA.value, nodeB.next);
+                                        ListNode copyB = new ListNode(nodeB.value, copyA);
+                                        if (NEXT.compareAndSet(current, nodeA, copyB)) {
+                                            // Old pair keeps its links for readers standing on it
+                                            nodeA.state = RETIRED;
+                                            nodeB.state = RETIRED;
+                                            swapCount++;
+                                            nextCurrent = copyB;
+                                        } else {
+                                            nextCurrent = current; // Head changed by addFirst, retry
+                                        }
+                                    } else {
+                                        // No swap needed, advance to A
+                                        nextCurrent = nodeA;
+                                    }
+                                } finally {
+                                    release(nodeB);
+                                }
+                            }
+                        } finally {
+                            release(nodeA);
+                        }
+                    }
+                } finally {
+                    release(current);
+                }
+            }
+
+            // Delay between steps (outside of claims)
+            if (stepDelayMs > 0) {
+                Thread.sleep(stepDelayMs);
+            }
+
+            current = nextCurrent;
+        }
+        return swapCount;
+    }
+
+    private static boolean tryClaim(ListNode node) {
+        return STATE.compareAndSet(node, FREE, CLAIMED);
+    }
+
+    private static void release(ListNode node) {
+        // A retired node stays retired; only the claim owner gets here
+        STATE.compareAndSet(node, CLAIMED, FREE);
+    }
+
+    /**
+     * Internal node class. The value never changes; the link changes only
+     * while the node is claimed (or by addFirst CAS on the sentinel head)
+     * and is frozen once the node is retired.
+     */
+    private static final class ListNode {
+        final String value;
+        volatile ListNode next;
+        volatile int state;
+
+        ListNode(String value, ListNode next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+}
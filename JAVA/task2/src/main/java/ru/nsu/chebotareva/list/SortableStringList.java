@@ -0,0 +1,19 @@
+package ru.nsu.chebotareva.list;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe string list that can be sorted in place
+ * by concurrent bubble sort workers.
+ */
+public interface SortableStringList extends IterableStringList {
+    /**
+     * Performs one complete pass of bubble sort on the list.
+     * @param swapDelayMs delay between swap operations in milliseconds
+     * @param stepDelayMs delay between comparison steps in milliseconds
+     * @param comparisonCounter counter of comparisons; without delays it is updated in batches
+     * @return number of swaps performed
+     * @throws InterruptedException if the thread is interrupted
+     */
+    int performBubbleSortPass(long swapDelayMs, long stepDelayMs, LongAdder comparisonCounter) throws InterruptedException;
+}
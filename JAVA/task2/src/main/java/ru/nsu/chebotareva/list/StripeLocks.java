@@ -0,0 +1,128 @@
+package ru.nsu.chebotareva.list;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks over the positions of a ring-backed list that occupies positions
+ * [head, 0): runs of STRIPE_SIZE consecutive positions share one lock, so sorters
+ * working on different regions of the list proceed in parallel. Locks are always
+ * taken in ascending stripe order.
+ */
+final class StripeLocks {
+    private static final int STRIPE_SHIFT = 6;
+    static final int STRIPE_SIZE = 1 << STRIPE_SHIFT;
+    private static final int STRIPE_COUNT = 64;
+
+    /**
+     * Compares and swaps the adjacent pairs starting at positions [from, end),
+     * called with their stripes locked.
+     */
+    @FunctionalInterface
+    interface RunSorter {
+        /**
+         * @return number of swaps made
+         */
+        int sortRun(long from, long end, ComparisonTally tally);
+    }
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPE_COUNT];
+    /** Null unless profiling is on */
+    private final LockProfile profile;
+
+    /**
+     * @param profileLocks whether to keep statistics of the stripe locks
+     */
+    StripeLocks(boolean profileLocks) {
+        this.profile = profileLocks ? new LockProfile() : null;
+        for (int i = 0; i < STRIPE_COUNT; i++) locks[i] = new ReentrantLock();
+    }
+
+    LockProfile profile() {
+        return profile;
+    }
+
+    /**
+     * Performs one complete pass of bubble sort from head to the end of the list.
+     * Without delays a whole stripe is compared under one lock acquisition;
+     * with delays every pair is locked separately and the delays are taken
+     * outside the locks, as in ArrayListBubbleSorter.
+     * @param head head of the list when the pass starts; prepends do not move
+     *             elements, so positions from it stay valid
+     */
+    int bubbleSortPass(long head, long swapDelayMs, long stepDelayMs, LongAdder comparisonCounter, RunSorter sorter)
+            throws InterruptedException {
+        boolean delayed = swapDelayMs > 0 || stepDelayMs > 0;
+        ComparisonTally tally = new ComparisonTally(comparisonCounter, delayed);
+        int swapCount = 0;
+        long pos = head;
+        try {
+            while (pos < -1 && !Thread.currentThread().isInterrupted()) {
+                if (swapDelayMs > 0) {
+                    TimeUnit.MILLISECONDS.sleep(swapDelayMs);
+                }
+
+                // Pairs starting in this stripe; the last one reaches into the next stripe
+                long runEnd = delayed ? pos + 1 : Math.min(-1, (pos | (STRIPE_SIZE - 1)) + 1);
+                int firstStripe = stripeOf(pos);
+                int secondStripe = stripeOf(runEnd);
+                lockStripes(firstStripe, secondStripe);
+                try {
+                    swapCount += sorter.sortRun(pos, runEnd, tally);
+                    pos = runEnd;
+                } finally {
+                    unlockStripes(firstStripe, secondStripe);
+                }
+
+                if (stepDelayMs > 0) {
+                    TimeUnit.MILLISECONDS.sleep(stepDelayMs);
+                }
+            }
+        } finally {
+            tally.flush();
+        }
+        return swapCount;
+    }
+
+    /**
+     * Locks every stripe, for snapshots and for moving the elements to a larger ring.
+     */
+    void lockAll() {
+        for (ReentrantLock lock : locks) lockStripe(lock);
+    }
+
+    void unlockAll() {
+        for (int i = STRIPE_COUNT - 1; i >= 0; i--) locks[i].unlock();
+    }
+
+    private static int stripeOf(long pos) {
+        return (int) (pos >> STRIPE_SHIFT) & (STRIPE_COUNT - 1);
+    }
+
+    private void lockStripes(int a, int b) {
+        int low = Math.min(a, b);
+        int high = Math.max(a, b);
+        lockStripe(locks[low]);
+        if (high != low) lockStripe(locks[high]);
+    }
+
+    private void lockStripe(ReentrantLock lock) {
+        if (profile == null) {
+            lock.lock();
+        } else if (lock.tryLock()) {
+            profile.acquired();
+        } else {
+            long waitStart = System.nanoTime();
+            lock.lock();
+            profile.acquiredAfterWait(System.nanoTime() - waitStart);
+        }
+    }
+
+    private void unlockStripes(int a, int b) {
+        int low = Math.min(a, b);
+        int high = Math.max(a, b);
+        if (high != low) locks[high].unlock();
+        locks[low].unlock();
+    }
+}
@@ -0,0 +1,155 @@
+package ru.nsu.chebotareva.list;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe array-backed list implementation for strings.
+ * Elements live in a circular array at positions [head, 0): addFirst only
+ * decrements head, so prepends are O(1) and never move existing elements.
+ * <p>
+ * Positions are guarded by {@link StripeLocks}: runs of consecutive positions
+ * share one lock, so sorters working on different regions of the list proceed
+ * in parallel.
+ */
+public class StripedArrayStringList implements SortableStringList, LockProfiled {
+    private final StripeLocks stripes;
+    /** Serializes prepends and resizes */
+    private final ReentrantLock headLock = new ReentrantLock();
+    private volatile String[] ring = new String[StripeLocks.STRIPE_SIZE];
+    /** Position of the first element; the list occupies positions [head, 0) */
+    private volatile long head;
+
+    public StripedArrayStringList() {
+        this(false);
+    }
+
+    /**
+     * @param profileLocks whether to keep statistics of the stripe locks
+     */
+    public StripedArrayStringList(boolean profileLocks) {
+        this.stripes = new StripeLocks(profileLocks);
+    }
+
+    @Override
+    public void addFirst(String value) {
+        if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+
+        headLock.lock();
+        try {
+            long newHead = head - 1;
+            if (-newHead > ring.length) grow();
+            // The slot is outside [head, 0), so no sorter can touch it before head is published
+            String[] current = ring;
+            current[(int) newHead & (current.length - 1)] = value;
+            head = newHead;
+        } finally {
+            headLock.unlock();
+        }
+    }
+
+    /**
+     * Grows the array at most once and publishes the whole batch with one head update.
+     */
+    @Override
+    public void addAllFirst(List<String> values) {
+        for (String value : values) {
+            if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+        }
+        if (values.isEmpty()) return;
+
+        headLock.lock();
+        try {
+            long newHead = head - values.size();
+            while (-newHead > ring.length) grow();
+            String[] current = ring;
+            int mask = current.length - 1;
+            for (int i = 0; i < values.size(); i++) current[(int) (newHead + i) & mask] = values.get(i);
+            head = newHead;
+        } finally {
+            headLock.unlock();
+        }
+    }
+
+    @Override
+    public LockProfile lockProfile() {
+        return stripes.profile();
+    }
+
+    @Override
+    public int size() {
+        return (int) -head;
+    }
+
+    /**
+     * Returns an iterator over a snapshot taken at creation.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public List<String> snapshot() {
+        headLock.lock();
+        stripes.lockAll();
+        try {
+            String[] current = ring;
+            List<String> copy = new ArrayList<>((int) -head);
+            for (long pos = head; pos < 0; pos++) copy.add(current[(int) pos & (current.length - 1)]);
+            return copy;
+        } finally {
+            stripes.unlockAll();
+            headLock.unlock();
+        }
+    }
+
+    /**
+     * Performs one complete pass of bubble sort on the list,
+     * see {@link StripeLocks#bubbleSortPass}.
+     */
+    @Override
+    public int performBubbleSortPass(long swapDelayMs, long stepDelayMs, LongAdder comparisonCounter) throws InterruptedException {
+        return stripes.bubbleSortPass(head, swapDelayMs, stepDelayMs, comparisonCounter, this::sortRun);
+    }
+
+    private int sortRun(long pos, long end, ComparisonTally tally) {
+        String[] current = ring;
+        int mask = current.length - 1;
+        int swapCount = 0;
+        for (; pos < end; pos++) {
+            tally.count();
+            int first = (int) pos & mask;
+            int second = (int) (pos + 1) & mask;
+            String firstValue = current[first];
+            String secondValue = current[second];
+            if (firstValue.compareTo(secondValue) > 0) {
+                current[first] = secondValue;
+                current[second] = firstValue;
+                swapCount++;
+            }
+        }
+        return swapCount;
+    }
+
+    /**
+     * Doubles the array. Called under headLock; takes every stripe lock
+     * so no sorter sees the elements while they move.
+     */
+    private void grow() {
+        stripes.lockAll();
+        try {
+            String[] current = ring;
+            String[] larger = new String[current.length * 2];
+            for (long pos = head; pos < 0; pos++) {
+                larger[(int) pos & (larger.length - 1)] = current[(int) pos & (current.length - 1)];
+            }
+            ring = larger;
+        } finally {
+            stripes.unlockAll();
+        }
+    }
+}
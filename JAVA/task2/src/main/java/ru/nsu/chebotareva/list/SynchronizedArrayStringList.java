@@ -0,0 +1,79 @@
+package ru.nsu.chebotareva.list;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Adapter exposing a synchronized ArrayList as an IterableStringList.
+ * Every operation holds the list monitor, as ArrayListBubbleSorter does.
+ */
+public class SynchronizedArrayStringList implements IterableStringList, LockProfiled {
+    private final List<String> synchronizedList = Collections.synchronizedList(new ArrayList<>());
+    /** Null unless profiling is on */
+    private final LockProfile lockProfile;
+
+    public SynchronizedArrayStringList() {
+        this(false);
+    }
+
+    /**
+     * @param profileLocks whether to count the monitor acquisitions
+     */
+    public SynchronizedArrayStringList(boolean profileLocks) {
+        this.lockProfile = profileLocks ? new LockProfile() : null;
+    }
+
+    /**
+     * @return the underlying synchronized list, to be sorted by ArrayListBubbleSorter
+     */
+    public List<String> synchronizedList() {
+        return synchronizedList;
+    }
+
+    /**
+     * Counts the monitor acquisitions of this adapter, or null if profiling is off;
+     * pass it to ArrayListBubbleSorter to include the sorters and their contention.
+     */
+    @Override
+    public LockProfile lockProfile() {
+        return lockProfile;
+    }
+
+    @Override
+    public void addFirst(String value) {
+        if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+        if (lockProfile != null) lockProfile.acquired();
+        synchronized (synchronizedList) { synchronizedList.add(0, value); }
+    }
+
+    @Override
+    public void addAllFirst(List<String> values) {
+        for (String value : values) {
+            if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+        }
+        if (lockProfile != null) lockProfile.acquired();
+        synchronized (synchronizedList) { synchronizedList.addAll(0, values); }
+    }
+
+    @Override
+    public int size() {
+        if (lockProfile != null) lockProfile.acquired();
+        synchronized (synchronizedList) { return synchronizedList.size(); }
+    }
+
+    /**
+     * Returns an iterator over a snapshot taken at creation.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public List<String> snapshot() {
+        if (lockProfile != null) lockProfile.acquired();
+        synchronized (synchronizedList) { return new ArrayList<>(synchronizedList); }
+    }
+}
@@ -1,29 +1,56 @@
 package ru.nsu.chebotareva.sort;
 
+import ru.nsu.chebotareva.list.LockProfile;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Bubble sort worker for synchronized ArrayList.
  * Continuously performs bubble sort passes on the shared synchronized list.
+ * <p>
+ * Monitors cannot be tried without blocking, so when profiling, contention is
+ * taken from the JVM's per-thread blocked count and time, sampled once per pass.
  */
 public final class ArrayListBubbleSorter implements Runnable {
     private final List<String> targetList;
     private final long stepDelayMs;
     private final long comparisonDelayMs;
-    private final AtomicLong operationCounter;
+    private final LongAdder operationCounter;
+    private final LockProfile lockProfile;
     private volatile boolean isActive = true;
+    private long reportedBlockedCount;
+    private long reportedBlockedMs;
 
     public ArrayListBubbleSorter(List<String> synchronizedList,
                                  long stepDelayMs,
                                  long comparisonDelayMs,
-                                 AtomicLong operationCounter) {
+                                 LongAdder operationCounter) {
+        this(synchronizedList, stepDelayMs, comparisonDelayMs, operationCounter, null);
+    }
+
+    /**
+     * @param lockProfile statistics to record monitor acquisitions and contention in, or null
+     */
+    public ArrayListBubbleSorter(List<String> synchronizedList,
+                                 long stepDelayMs,
+                                 long comparisonDelayMs,
+                                 LongAdder operationCounter,
+                                 LockProfile lockProfile) {
         this.targetList = synchronizedList;
         this.stepDelayMs = stepDelayMs;
         this.comparisonDelayMs = comparisonDelayMs;
         this.operationCounter = operationCounter;
+        this.lockProfile = lockProfile;
+        if (lockProfile != null) {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads.isThreadContentionMonitoringSupported()) threads.setThreadContentionMonitoringEnabled(true);
+        }
     }
 
     /**
@@ -35,10 +62,12 @@ public final class ArrayListBubbleSorter implements Runnable {
 
     @Override
     public void run() {
+        sampleMonitorContention(false);
         try {
             while (isActive && !Thread.currentThread().isInterrupted()) {
                 int listSize;
                 synchronized (targetList) { listSize = targetList.size(); }
+                if (lockProfile != null) lockProfile.acquired();
 
                 for (int position = 0; position < Math.max(0, listSize - 1) && isActive && !Thread.currentThread().isInterrupted(); position++) {
                     // Delay before comparison if specified
@@ -46,6 +75,7 @@ public final class ArrayListBubbleSorter implements Runnable {
                         TimeUnit.MILLISECONDS.sleep(comparisonDelayMs);
                     }
 
+                    if (lockProfile != null) lockProfile.acquired();
                     synchronized (targetList) {
                         if (position + 1 >= targetList.size()) break;
 
@@ -57,16 +87,38 @@ public final class ArrayListBubbleSorter implements Runnable {
                         }
                     }
 
-                    operationCounter.incrementAndGet();
+                    operationCounter.increment();
 
                     // Delay between steps if specified
                     if (stepDelayMs > 0) {
                         TimeUnit.MILLISECONDS.sleep(stepDelayMs);
                     }
                 }
+                sampleMonitorContention(true);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } finally {
+            sampleMonitorContention(true);
+        }
+    }
+
+    /**
+     * Adds the blocking of this thread since the previous sample to the profile.
+     * @param record false to only take the baseline
+     */
+    private void sampleMonitorContention(boolean record) {
+        if (lockProfile == null) return;
+        ThreadInfo info = ManagementFactory.getThreadMXBean().getThreadInfo(Thread.currentThread().threadId());
+        if (info == null) return;
+        long blockedCount = info.getBlockedCount();
+        // -1 when contention monitoring is unavailable
+        long blockedMs = Math.max(0, info.getBlockedTime());
+        if (record) {
+            lockProfile.addContended(blockedCount - reportedBlockedCount,
+                    TimeUnit.MILLISECONDS.toNanos(blockedMs - reportedBlockedMs));
         }
+        reportedBlockedCount = blockedCount;
+        reportedBlockedMs = blockedMs;
     }
 }
@@ -1,20 +1,21 @@
 package ru.nsu.chebotareva.sort;
 
-import ru.nsu.chebotareva.list.LinkedStringList;
-import java.util.concurrent.atomic.AtomicLong;
+import ru.nsu.chebotareva.list.SortableStringList;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Bubble sort worker for LinkedStringList.
+ * Bubble sort worker for lists that sort themselves in passes
+ * (LinkedStringList, NonBlockingStringList, StripedArrayStringList, CompactStringList).
  * Continuously performs bubble sort passes on the shared list.
  */
 public final class LinkedListBubbleSorter implements Runnable {
-    private final LinkedStringList targetList;
+    private final SortableStringList targetList;
     private final long stepDelayMs;
     private final long comparisonDelayMs;
-    private final AtomicLong operationCounter;
+    private final LongAdder operationCounter;
     private volatile boolean isActive = true;
 
-    public LinkedListBubbleSorter(LinkedStringList targetList, long stepDelayMs, long comparisonDelayMs, AtomicLong operationCounter) {
+    public LinkedListBubbleSorter(SortableStringList targetList, long stepDelayMs, long comparisonDelayMs, LongAdder operationCounter) {
         this.targetList = targetList;
         this.stepDelayMs = stepDelayMs;
         this.comparisonDelayMs = comparisonDelayMs;
@@ -32,7 +33,7 @@ public final class LinkedListBubbleSorter implements Runnable {
     public void run() {
         try {
             while (isActive && !Thread.currentThread().isInterrupted()) {
-                targetList.performBubbleSortPass(comparisonDelayMs, stepDelayMs, operationCounter::incrementAndGet);
+                targetList.performBubbleSortPass(comparisonDelayMs, stepDelayMs, operationCounter);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -0,0 +1,207 @@
+package ru.nsu.chebotareva.sort;
+
+import ru.nsu.chebotareva.list.IterableStringList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maintained-sorted list: new strings land in an unsorted staging buffer,
+ * and a merger worker repeatedly sorts the buffer and merges it into an
+ * immutable sorted array, which it then publishes in place of the old one.
+ * A merge costs O(n + b log b) for a batch of b strings, instead of bubble
+ * passes over the whole list for every insertion.
+ * <p>
+ * The batch grows by itself while a merge is running, so under a high insert
+ * rate merges become larger and rarer. Readers always get a sorted view of all
+ * inserted strings: the published array merged with a sorted copy of whatever
+ * has not been merged yet.
+ */
+public final class MergeInsertEngine implements IterableStringList {
+    private final long mergeDelayMs;
+    private final LongAdder operationCounter;
+
+    /** Guards the staging buffer and the published state */
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private final Condition stagingNotEmpty = stateLock.newCondition();
+    private final AtomicInteger elementCount = new AtomicInteger(0);
+
+    private List<String> staging = new ArrayList<>();
+    /** Batch taken by the merger and not yet published, or null */
+    private List<String> mergingBatch;
+    private String[] sorted = new String[0];
+    private boolean workerCreated;
+    /** Comparisons of the current merge; touched by the merger thread only */
+    private long mergeComparisons;
+
+    /**
+     * @param mergeDelayMs pause before each merge, letting the staging buffer fill up
+     * @param operationCounter counter of comparisons made while sorting and merging
+     */
+    public MergeInsertEngine(long mergeDelayMs, LongAdder operationCounter) {
+        this.mergeDelayMs = mergeDelayMs;
+        this.operationCounter = operationCounter;
+    }
+
+    /**
+     * Creates the merger worker of this engine.
+     */
+    public Runnable createWorker() {
+        stateLock.lock();
+        try {
+            if (workerCreated) throw new IllegalStateException("Worker has already been created");
+            workerCreated = true;
+        } finally {
+            stateLock.unlock();
+        }
+        return this::runMerger;
+    }
+
+    @Override
+    public void addFirst(String value) {
+        if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+        stateLock.lock();
+        try {
+            staging.add(value);
+            elementCount.incrementAndGet();
+            if (staging.size() == 1) stagingNotEmpty.signal();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    @Override
+    public void addAllFirst(List<String> values) {
+        for (String value : values) {
+            if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+        }
+        if (values.isEmpty()) return;
+        stateLock.lock();
+        try {
+            boolean wasEmpty = staging.isEmpty();
+            staging.addAll(values);
+            elementCount.addAndGet(values.size());
+            if (wasEmpty) stagingNotEmpty.signal();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return elementCount.get();
+    }
+
+    /**
+     * Returns an iterator over a sorted snapshot taken at creation.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * Returns all strings in sorted order, as an unmodifiable list. Only the
+     * references are captured under the lock; sorting the unmerged part and
+     * merging happen outside it.
+     */
+    @Override
+    public List<String> snapshot() {
+        String[] published;
+        List<String> pending = new ArrayList<>();
+        stateLock.lock();
+        try {
+            published = sorted;
+            if (mergingBatch != null) pending.addAll(mergingBatch);
+            pending.addAll(staging);
+        } finally {
+            stateLock.unlock();
+        }
+
+        // Published arrays are never modified, so a fully merged list is returned without copying
+        if (pending.isEmpty()) return Collections.unmodifiableList(Arrays.asList(published));
+        String[] pendingSorted = pending.toArray(new String[0]);
+        Arrays.sort(pendingSorted);
+        return Collections.unmodifiableList(Arrays.asList(merge(published, pendingSorted, false)));
+    }
+
+    private void runMerger() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                awaitStaging();
+                if (mergeDelayMs > 0) {
+                    TimeUnit.MILLISECONDS.sleep(mergeDelayMs);
+                }
+                mergeStaging();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitStaging() throws InterruptedException {
+        stateLock.lock();
+        try {
+            while (staging.isEmpty()) stagingNotEmpty.await();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private void mergeStaging() {
+        List<String> batch;
+        String[] published;
+        stateLock.lock();
+        try {
+            batch = staging;
+            staging = new ArrayList<>();
+            // Still visible to readers until the merged array replaces it
+            mergingBatch = batch;
+            published = sorted;
+        } finally {
+            stateLock.unlock();
+        }
+
+        mergeComparisons = 0;
+        String[] batchSorted = batch.toArray(new String[0]);
+        Arrays.sort(batchSorted, (a, b) -> {
+            mergeComparisons++;
+            return a.compareTo(b);
+        });
+        String[] merged = merge(published, batchSorted, true);
+
+        stateLock.lock();
+        try {
+            sorted = merged;
+            mergingBatch = null;
+        } finally {
+            stateLock.unlock();
+        }
+        operationCounter.add(mergeComparisons);
+    }
+
+    /**
+     * Merges two sorted arrays; equal strings from the first array go first.
+     */
+    private String[] merge(String[] first, String[] second, boolean counted) {
+        String[] result = new String[first.length + second.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < first.length && j < second.length) {
+            if (counted) mergeComparisons++;
+            result[k++] = first[i].compareTo(second[j]) <= 0 ? first[i++] : second[j++];
+        }
+        while (i < first.length) result[k++] = first[i++];
+        while (j < second.length) result[k++] = second[j++];
+        return result;
+    }
+}
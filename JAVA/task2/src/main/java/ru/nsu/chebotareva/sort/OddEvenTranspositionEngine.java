@@ -0,0 +1,254 @@
+package ru.nsu.chebotareva.sort;
+
+import ru.nsu.chebotareva.list.IterableStringList;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Coordinated odd-even transposition sort over its own circular array.
+ * Each phase compares either all even or all odd pairs; the pairs are split
+ * into disjoint stripes, one per worker, so workers never touch the same
+ * element and never contend with each other. Workers meet at a barrier
+ * between phases, where pending insertions are merged in.
+ * <p>
+ * New strings are queued and prepended at the next phase boundary. When two
+ * consecutive phases make no swaps and nothing is queued the list is sorted,
+ * and the workers sleep until the next insertion.
+ */
+public final class OddEvenTranspositionEngine implements IterableStringList {
+    /** Pairs processed under one lock acquisition when there are no delays */
+    private static final int BATCH_PAIRS = 256;
+
+    private final int workerCount;
+    private final long stepDelayMs;
+    private final long comparisonDelayMs;
+    private final LongAdder operationCounter;
+
+    private final CyclicBarrier phaseBarrier;
+    /** Shared by workers transposing disjoint pairs, exclusive for readers and merges */
+    private final ReentrantReadWriteLock phaseLock = new ReentrantReadWriteLock();
+    private final ConcurrentLinkedDeque<String> pendingInserts = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger elementCount = new AtomicInteger(0);
+    private final AtomicInteger phaseSwaps = new AtomicInteger(0);
+
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition workArrived = idleLock.newCondition();
+    private volatile boolean idle;
+
+    private String[] ring = new String[16];
+    private int ringHead;
+    private int ringSize;
+    private volatile long phase;
+    private int quietPhases;
+    private boolean workersCreated;
+
+    public OddEvenTranspositionEngine(int workerCount, long stepDelayMs, long comparisonDelayMs, LongAdder operationCounter) {
+        if (workerCount <= 0) throw new IllegalArgumentException("At least one worker is required");
+        this.workerCount = workerCount;
+        this.stepDelayMs = stepDelayMs;
+        this.comparisonDelayMs = comparisonDelayMs;
+        this.operationCounter = operationCounter;
+        this.phaseBarrier = new CyclicBarrier(workerCount, this::finishPhase);
+    }
+
+    /**
+     * Creates the workers of this engine. Each one must run in its own thread:
+     * a phase starts only when all of them have reached the barrier.
+     * @return workerCount workers
+     */
+    public synchronized List<Runnable> createWorkers() {
+        if (workersCreated) throw new IllegalStateException("Workers have already been created");
+        workersCreated = true;
+        List<Runnable> workers = new ArrayList<>(workerCount);
+        for (int workerId = 0; workerId < workerCount; workerId++) {
+            int stripe = workerId;
+            workers.add(() -> runWorker(stripe));
+        }
+        return workers;
+    }
+
+    @Override
+    public void addFirst(String value) {
+        if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+        pendingInserts.addFirst(value);
+        elementCount.incrementAndGet();
+        wakeIdleWorkers();
+    }
+
+    /**
+     * Queues the whole batch and wakes idle workers once.
+     */
+    @Override
+    public void addAllFirst(List<String> values) {
+        for (String value : values) {
+            if (value == null) throw new IllegalArgumentException("Null values are not allowed");
+        }
+        for (int i = values.size() - 1; i >= 0; i--) pendingInserts.addFirst(values.get(i));
+        elementCount.addAndGet(values.size());
+        wakeIdleWorkers();
+    }
+
+    private void wakeIdleWorkers() {
+        if (idle) {
+            idleLock.lock();
+            try {
+                workArrived.signalAll();
+            } finally {
+                idleLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return elementCount.get();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public List<String> snapshot() {
+        phaseLock.writeLock().lock();
+        try {
+            List<String> copy = new ArrayList<>(ringSize + pendingInserts.size());
+            copy.addAll(pendingInserts);
+            for (int i = 0; i < ringSize; i++) copy.add(get(i));
+            return copy;
+        } finally {
+            phaseLock.writeLock().unlock();
+        }
+    }
+
+    private void runWorker(int stripe) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                phaseSwaps.addAndGet(transposeStripe(stripe));
+                phaseBarrier.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (BrokenBarrierException e) {
+            // Another worker has stopped
+        } finally {
+            phaseBarrier.reset();
+        }
+    }
+
+    /**
+     * Compares and swaps this worker's share of the current phase's pairs.
+     * The array is not resized during a phase, so indices stay valid between batches.
+     */
+    private int transposeStripe(int stripe) throws InterruptedException {
+        int firstIndex = (int) (phase & 1);
+        int pairCount = Math.max(0, (ringSize - firstIndex) / 2);
+        int from = (int) ((long) pairCount * stripe / workerCount);
+        int to = (int) ((long) pairCount * (stripe + 1) / workerCount);
+        boolean delayed = comparisonDelayMs > 0 || stepDelayMs > 0;
+        int swapCount = 0;
+
+        int pair = from;
+        while (pair < to && !Thread.currentThread().isInterrupted()) {
+            // The pair belongs to this worker alone, so the delay need not hold the lock
+            if (comparisonDelayMs > 0) {
+                TimeUnit.MILLISECONDS.sleep(comparisonDelayMs);
+            }
+
+            int batchStart = pair;
+            int batchEnd = delayed ? pair + 1 : Math.min(to, pair + BATCH_PAIRS);
+            phaseLock.readLock().lock();
+            try {
+                for (; pair < batchEnd; pair++) {
+                    int index = firstIndex + 2 * pair;
+                    String first = get(index);
+                    String second = get(index + 1);
+                    if (first.compareTo(second) > 0) {
+                        set(index, second);
+                        set(index + 1, first);
+                        swapCount++;
+                    }
+                }
+            } finally {
+                phaseLock.readLock().unlock();
+            }
+            operationCounter.add(pair - batchStart);
+
+            if (stepDelayMs > 0) {
+                TimeUnit.MILLISECONDS.sleep(stepDelayMs);
+            }
+        }
+        return swapCount;
+    }
+
+    /**
+     * Barrier action, runs in one worker while the others wait at the barrier.
+     */
+    private void finishPhase() {
+        quietPhases = phaseSwaps.getAndSet(0) == 0 ? quietPhases + 1 : 0;
+        if (quietPhases >= 2 && pendingInserts.isEmpty()) {
+            awaitInsertion();
+        }
+        if (mergePendingInserts()) quietPhases = 0;
+        phase++;
+    }
+
+    private void awaitInsertion() {
+        idleLock.lock();
+        try {
+            idle = true;
+            while (pendingInserts.isEmpty()) {
+                workArrived.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            idle = false;
+            idleLock.unlock();
+        }
+    }
+
+    private boolean mergePendingInserts() {
+        if (pendingInserts.isEmpty()) return false;
+        phaseLock.writeLock().lock();
+        try {
+            String value;
+            while ((value = pendingInserts.pollLast()) != null) {
+                if (ringSize == ring.length) grow();
+                ringHead = (ringHead - 1) & (ring.length - 1);
+                ring[ringHead] = value;
+                ringSize++;
+            }
+            return true;
+        } finally {
+            phaseLock.writeLock().unlock();
+        }
+    }
+
+    private void grow() {
+        String[] larger = new String[ring.length * 2];
+        for (int i = 0; i < ringSize; i++) larger[i] = get(i);
+        ring = larger;
+        ringHead = 0;
+    }
+
+    private String get(int index) {
+        return ring[(ringHead + index) & (ring.length - 1)];
+    }
+
+    private void set(int index, String value) {
+        ring[(ringHead + index) & (ring.length - 1)] = value;
+    }
+}
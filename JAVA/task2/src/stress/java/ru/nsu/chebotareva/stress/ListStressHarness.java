@@ -0,0 +1,354 @@
+package ru.nsu.chebotareva.stress;
+
+import ru.nsu.chebotareva.app.SortingMode;
+import ru.nsu.chebotareva.list.IterableStringList;
+import ru.nsu.chebotareva.list.LinkedStringList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency stress test for every --mode of the application.
+ * <p>
+ * For each mode and sorter count, writers prepend unique strings (single and
+ * batched inserts) while the sorters run and readers take snapshots in a loop.
+ * Every snapshot is checked against what the writers had finished before it
+ * started and begun before it ended: no duplicates, no lost elements, no
+ * values that were never written. After the writers stop, the list must become
+ * sorted and hold exactly the written strings; the linked list also has its
+ * links verified. Throughput of all three roles is reported for the same run.
+ * <p>
+ * A run that makes no progress for the stall timeout is reported as a possible
+ * deadlock together with the stacks of its threads. Exits with status 1 if
+ * any run fails.
+ */
+public class ListStressHarness {
+    private static class StressConfig {
+        List<SortingMode> modes = List.of(SortingMode.values());
+        int[] threadCounts = {1, 2, 4, 8};
+        int writers = 2;
+        int readers = 2;
+        int maxPerWriter = 2000;
+        int batchSize = 8;
+        long durationMs = 2000;
+        long settleMs = 20000;
+        long stallMs = 5000;
+    }
+
+    private static StressConfig parseCommandLineArgs(String[] args) {
+        StressConfig config = new StressConfig();
+        for (String arg : args) {
+            if (arg.startsWith("--modes=")) config.modes = parseModes(arg.substring("--modes=".length()));
+            else if (arg.startsWith("--threads=")) config.threadCounts = parseInts(arg.substring("--threads=".length()));
+            else if (arg.startsWith("--writers=")) config.writers = Integer.parseInt(arg.substring("--writers=".length()));
+            else if (arg.startsWith("--readers=")) config.readers = Integer.parseInt(arg.substring("--readers=".length()));
+            else if (arg.startsWith("--maxPerWriter=")) config.maxPerWriter = Integer.parseInt(arg.substring("--maxPerWriter=".length()));
+            else if (arg.startsWith("--batch=")) config.batchSize = Integer.parseInt(arg.substring("--batch=".length()));
+            else if (arg.startsWith("--durationMs=")) config.durationMs = Long.parseLong(arg.substring("--durationMs=".length()));
+            else if (arg.startsWith("--settleMs=")) config.settleMs = Long.parseLong(arg.substring("--settleMs=".length()));
+            else if (arg.startsWith("--stallMs=")) config.stallMs = Long.parseLong(arg.substring("--stallMs=".length()));
+            else throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        if (config.writers <= 0 || config.readers < 0 || config.batchSize <= 0 || config.maxPerWriter <= 0) {
+            throw new IllegalArgumentException("Writers, batch size and writes per writer must be positive");
+        }
+        return config;
+    }
+
+    private static List<SortingMode> parseModes(String value) {
+        List<SortingMode> modes = new ArrayList<>();
+        for (String name : value.split(",")) {
+            SortingMode mode = SortingMode.fromName(name.trim());
+            if (mode == null) throw new IllegalArgumentException("Unsupported list type: " + name);
+            modes.add(mode);
+        }
+        return modes;
+    }
+
+    private static int[] parseInts(String value) {
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) result[i] = Integer.parseInt(parts[i].trim());
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        StressConfig config = parseCommandLineArgs(args);
+        int failures = 0;
+        for (SortingMode mode : config.modes) {
+            for (int threads : config.threadCounts) {
+                if (!new StressRun(mode, threads, config).run()) failures++;
+            }
+        }
+        System.out.println(failures == 0 ? "All stress runs passed" : failures + " stress run(s) failed");
+        if (failures > 0) System.exit(1);
+    }
+
+    /**
+     * One mode with one sorter count.
+     */
+    private static final class StressRun {
+        private final SortingMode mode;
+        private final int sorterCount;
+        private final StressConfig config;
+        private final LongAdder comparisons = new LongAdder();
+        private final LongAdder snapshots = new LongAdder();
+        /** Per writer: strings whose insert has begun / has returned */
+        private final AtomicLongArray started;
+        private final AtomicLongArray completed;
+        /** First violation seen by any thread */
+        private final AtomicReference<String> failure = new AtomicReference<>();
+        private final List<Thread> threads = new ArrayList<>();
+        private IterableStringList list;
+        private volatile boolean writing = true;
+
+        StressRun(SortingMode mode, int sorterCount, StressConfig config) {
+            this.mode = mode;
+            this.sorterCount = sorterCount;
+            this.config = config;
+            this.started = new AtomicLongArray(config.writers);
+            this.completed = new AtomicLongArray(config.writers);
+        }
+
+        boolean run() throws InterruptedException {
+            SortingMode.Setup setup = mode.create(sorterCount, 0, 0, comparisons);
+            list = setup.list();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < setup.sorters().size(); i++) {
+                startThread(setup.sorters().get(i), "stress-sorter-" + i);
+            }
+            List<Thread> writerThreads = new ArrayList<>();
+            for (int w = 0; w < config.writers; w++) {
+                int writer = w;
+                writerThreads.add(startThread(() -> write(writer), "stress-writer-" + w));
+            }
+            List<Thread> readerThreads = new ArrayList<>();
+            for (int r = 0; r < config.readers; r++) {
+                readerThreads.add(startThread(this::read, "stress-reader-" + r));
+            }
+
+            double writeSeconds;
+            long comparisonsAtWriteEnd;
+            long snapshotsAtWriteEnd;
+            String sortedState = "no";
+            try {
+                awaitWriters(writerThreads, start);
+                writeSeconds = (System.nanoTime() - start) / 1e9;
+                comparisonsAtWriteEnd = comparisons.sum();
+                snapshotsAtWriteEnd = snapshots.sum();
+                writing = false;
+                for (Thread t : readerThreads) t.join(config.stallMs);
+                if (failure.get() == null && awaitSorted()) sortedState = "yes";
+            } finally {
+                writing = false;
+                for (Thread t : threads) t.interrupt();
+                for (Thread t : threads) t.join(2000);
+            }
+            if (threads.stream().anyMatch(Thread::isAlive)) fail("threads did not stop after interrupt" + stacks());
+            if (failure.get() == null) checkFinalState(sortedState);
+
+            long written = 0;
+            for (int w = 0; w < config.writers; w++) written += completed.get(w);
+            String reason = failure.get();
+            System.out.printf(Locale.US,
+                    "STRESS: mode=%s sorters=%d writers=%d readers=%d size=%d sorted=%s "
+                            + "writes/s=%.0f snapshots/s=%.1f comparisons/s=%.0f result=%s%n",
+                    mode.modeName(), sorterCount, config.writers, config.readers, written, sortedState,
+                    written / writeSeconds, snapshotsAtWriteEnd / writeSeconds, comparisonsAtWriteEnd / writeSeconds,
+                    reason == null ? "OK" : "FAIL (" + reason + ")");
+            return reason == null;
+        }
+
+        private Thread startThread(Runnable task, String name) {
+            Thread t = new Thread(task, name);
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+            return t;
+        }
+
+        /**
+         * Writer strings are "w<writer>-<seq>" with seq counting from 0, so every
+         * string in a snapshot can be traced back to the insert that produced it.
+         */
+        private void write(int writer) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int seq = 0;
+            while (writing && seq < config.maxPerWriter && failure.get() == null) {
+                int count = random.nextInt(4) == 0 ? Math.min(config.batchSize, config.maxPerWriter - seq) : 1;
+                List<String> batch = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) batch.add(value(writer, seq + i));
+                started.set(writer, seq + count);
+                try {
+                    if (count == 1) list.addFirst(batch.get(0));
+                    else list.addAllFirst(batch);
+                } catch (RuntimeException e) {
+                    fail("addFirst threw " + e);
+                    return;
+                }
+                seq += count;
+                completed.set(writer, seq);
+            }
+        }
+
+        private void read() {
+            long[] completedBefore = new long[config.writers];
+            long[] startedAfter = new long[config.writers];
+            while (writing && failure.get() == null && !Thread.currentThread().isInterrupted()) {
+                for (int w = 0; w < config.writers; w++) completedBefore[w] = completed.get(w);
+                List<String> snapshot;
+                try {
+                    snapshot = list.snapshot();
+                } catch (RuntimeException e) {
+                    fail("snapshot threw " + e);
+                    return;
+                }
+                for (int w = 0; w < config.writers; w++) startedAfter[w] = started.get(w);
+
+                String violation = checkContents(snapshot, completedBefore, startedAfter);
+                if (violation != null) {
+                    fail("snapshot: " + violation);
+                    return;
+                }
+                snapshots.increment();
+            }
+        }
+
+        /**
+         * Checks that the strings are distinct writer strings, none of them inserted
+         * later than startedAfter allows, and all completedBefore ones present.
+         * @return description of the first violation, or null
+         */
+        private String checkContents(List<String> values, long[] completedBefore, long[] startedAfter) {
+            BitSet[] seen = new BitSet[config.writers];
+            for (int w = 0; w < config.writers; w++) seen[w] = new BitSet();
+            for (String value : values) {
+                if (value == null) return "null element";
+                int separator = value.indexOf('-');
+                if (!value.startsWith("w") || separator < 0) return "unknown element " + value;
+                int writer = Integer.parseInt(value, 1, separator, 10);
+                int seq = Integer.parseInt(value, separator + 1, value.length(), 10);
+                if (writer >= config.writers || seq >= startedAfter[writer]) return "element " + value + " was never inserted";
+                if (seen[writer].get(seq)) return "duplicate element " + value;
+                seen[writer].set(seq);
+            }
+            for (int w = 0; w < config.writers; w++) {
+                int missing = seen[w].nextClearBit(0);
+                if (missing < completedBefore[w]) return "lost element " + value(w, missing);
+            }
+            return null;
+        }
+
+        /**
+         * Waits for the writers, failing the run if neither writers nor readers
+         * make progress for the stall timeout.
+         */
+        private void awaitWriters(List<Thread> writerThreads, long start) throws InterruptedException {
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.durationMs);
+            long lastProgress = -1;
+            long lastProgressTime = System.nanoTime();
+            while (writerThreads.stream().anyMatch(Thread::isAlive) && failure.get() == null) {
+                TimeUnit.MILLISECONDS.sleep(20);
+                long now = System.nanoTime();
+                if (now >= deadline) writing = false;
+
+                long progress = snapshots.sum();
+                for (int w = 0; w < config.writers; w++) progress += completed.get(w);
+                if (progress != lastProgress) {
+                    lastProgress = progress;
+                    lastProgressTime = now;
+                } else if (now - lastProgressTime > TimeUnit.MILLISECONDS.toNanos(config.stallMs)) {
+                    fail("no progress for " + config.stallMs + " ms, possible deadlock" + stacks());
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return true if the list became sorted before the settle timeout
+         */
+        private boolean awaitSorted() throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.settleMs);
+            while (System.nanoTime() < deadline) {
+                if (isSorted(list.snapshot())) return true;
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+            fail("not sorted " + config.settleMs + " ms after the writers stopped");
+            return false;
+        }
+
+        /**
+         * Checks the quiescent list: nothing is running, so it must hold exactly what was written.
+         */
+        private void checkFinalState(String sortedState) {
+            long total = 0;
+            long[] written = new long[config.writers];
+            for (int w = 0; w < config.writers; w++) {
+                written[w] = completed.get(w);
+                total += written[w];
+            }
+            if (list.size() != total) {
+                fail("size() = " + list.size() + ", written " + total);
+                return;
+            }
+            List<String> snapshot = list.snapshot();
+            if (snapshot.size() != total) {
+                fail("snapshot has " + snapshot.size() + " elements, written " + total);
+                return;
+            }
+            String violation = checkContents(snapshot, written, written);
+            if (violation != null) {
+                fail("final contents: " + violation);
+                return;
+            }
+            if (sortedState.equals("yes") && !isSorted(snapshot)) {
+                fail("became unsorted after the sorters stopped");
+                return;
+            }
+            if (list instanceof LinkedStringList linked) {
+                try {
+                    linked.checkInvariants();
+                } catch (IllegalStateException e) {
+                    fail("links: " + e.getMessage());
+                }
+            }
+        }
+
+        private void fail(String reason) {
+            failure.compareAndSet(null, reason);
+        }
+
+        private String stacks() {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+                if (!entry.getKey().getName().startsWith("stress-")) continue;
+                sb.append(System.lineSeparator()).append("  ").append(entry.getKey().getName())
+                        .append(" ").append(entry.getKey().getState());
+                for (StackTraceElement frame : entry.getValue()) {
+                    sb.append(System.lineSeparator()).append("    at ").append(frame);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private static String value(int writer, long seq) {
+        return "w" + writer + "-" + seq;
+    }
+
+    private static boolean isSorted(List<String> values) {
+        for (int i = 1; i < values.size(); i++) {
+            if (values.get(i - 1).compareTo(values.get(i)) > 0) return false;
+        }
+        return true;
+    }
+}
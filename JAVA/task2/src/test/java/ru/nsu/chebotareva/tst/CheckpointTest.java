@@ -0,0 +1,66 @@
+package ru.nsu.chebotareva.tst;
+
+import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.app.ListCheckpoint;
+import ru.nsu.chebotareva.list.LinkedStringList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckpointTest {
+
+    @Test
+    void restoresSnapshotInListOrder() throws Exception {
+        Path dir = Files.createTempDirectory("checkpoint-test");
+        Path file = dir.resolve("list.ckpt");
+        LinkedStringList list = new LinkedStringList();
+        for (String s : Arrays.asList("delta", "", "\u00e9t\u00e9", "\u0436\u0443\u043a", "\ud83d\ude00", "alpha")) {
+            list.addFirst(s);
+        }
+        List<String> snapshot = list.snapshot();
+        ListCheckpoint.write(snapshot, file);
+
+        LinkedStringList restored = new LinkedStringList();
+        restored.addFirst("existing");
+        restored.addAllFirst(ListCheckpoint.read(file));
+
+        List<String> expected = new ArrayList<>(snapshot);
+        expected.add("existing");
+        assertEquals(expected, restored.snapshot());
+        assertFalse(Files.exists(dir.resolve("list.ckpt.tmp")), "Temporary file should be moved into place");
+    }
+
+    @Test
+    void writesLargeCheckpointsAcrossBufferBoundaries() throws Exception {
+        Path file = Files.createTempDirectory("checkpoint-test").resolve("large.ckpt");
+        List<String> values = new ArrayList<>();
+        Random rnd = new Random(5);
+        for (int i = 0; i < 50_000; i++) {
+            char[] chars = new char[1 + rnd.nextInt(80)];
+            for (int j = 0; j < chars.length; j++) chars[j] = (char) ('a' + rnd.nextInt(26));
+            values.add(new String(chars));
+        }
+        ListCheckpoint.write(values, file);
+        assertEquals(values, ListCheckpoint.read(file));
+    }
+
+    @Test
+    void rejectsTruncatedCheckpoint() throws Exception {
+        Path file = Files.createTempDirectory("checkpoint-test").resolve("broken.ckpt");
+        ListCheckpoint.write(Arrays.asList("alpha", "bravo"), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+        assertThrows(IOException.class, () -> ListCheckpoint.read(file));
+
+        // A header claiming more elements than the file can hold is rejected before allocating
+        byte[] header = Arrays.copyOf(bytes, 12);
+        header[4] = 0x7f;
+        header[5] = header[6] = header[7] = (byte) 0xff;
+        Files.write(file, header);
+        assertThrows(IOException.class, () -> ListCheckpoint.read(file));
+    }
+}
@@ -0,0 +1,45 @@
+package ru.nsu.chebotareva.tst;
+
+import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.app.SortingMode;
+import ru.nsu.chebotareva.list.CompactStringList;
+import ru.nsu.chebotareva.sort.LinkedListBubbleSorter;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactModeTest extends ListModeContractTest {
+
+    @Override
+    protected SortingMode mode() {
+        return SortingMode.COMPACT;
+    }
+
+    @Test
+    void ordersMixedLatin1AndWideStringsLikeStringCompareTo() throws Exception {
+        List<String> values = Arrays.asList("zeta", "\u00e9t\u00e9", "\u0436\u0443\u043a", "ab", "a", "",
+                "\u00ff", "\u0100", "abc\u20ac", "abc", "\ud83d\ude00", "Zulu");
+        CompactStringList list = new CompactStringList();
+        for (String s : values) list.addFirst(s);
+        List<String> reversed = new ArrayList<>(values);
+        Collections.reverse(reversed);
+        assertEquals(reversed, list.snapshot());
+
+        LongAdder steps = new LongAdder();
+        Thread t = new Thread(new LinkedListBubbleSorter(list, 0, 0, steps), "spec-compact-0");
+        t.start();
+        List<String> expected = new ArrayList<>(values);
+        Collections.sort(expected);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!list.snapshot().equals(expected) && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        t.interrupt();
+        t.join(2000);
+
+        assertEquals(expected, list.snapshot());
+    }
+}
@@ -1,13 +1,15 @@
 package ru.nsu.chebotareva.tst;
 
 import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.list.IterableStringList;
 import ru.nsu.chebotareva.list.LinkedStringList;
+import ru.nsu.chebotareva.list.SortableStringList;
 import ru.nsu.chebotareva.sort.ArrayListBubbleSorter;
 import ru.nsu.chebotareva.sort.LinkedListBubbleSorter;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ComparisonTest {
 
@@ -20,20 +22,10 @@ public class ComparisonTest {
         long windowMs = 3000;
         int maxLen = 80;
 
-        double linked = measureLinked(n, threads, insideMs, betweenMs, maxLen, windowMs);
-        double array = measureArray(n, threads, insideMs, betweenMs, maxLen, windowMs);
-
-        double winner = Math.max(linked, array);
-        double loser = Math.min(linked, array);
-        double ratio = winner / Math.max(1e-9, loser);
-        String winnerName = linked >= array ? "linked" : "array";
-
-        System.out.printf(Locale.US,
-                "COMPARISON: linked=%.1f/s array=%.1f/s winner=%s ratio=%.2f%n",
-                linked, array, winnerName, ratio);
-
-        printBar("linked", linked, winner);
-        printBar("array ", array, winner);
+        Map<String, Double> results = new LinkedHashMap<>();
+        results.put("linked", measureSortable(new LinkedStringList(), "linked", n, threads, insideMs, betweenMs, maxLen, windowMs));
+        results.put("array", measureArray(n, threads, insideMs, betweenMs, maxLen, windowMs));
+        printComparison(results);
     }
 
     @Test
@@ -45,20 +37,31 @@ public class ComparisonTest {
         long windowMs = 7000;
         int maxLen = 80;
 
-        double linked = measureLinked(n, threads, insideMs, betweenMs, maxLen, windowMs);
-        double array = measureArray(n, threads, insideMs, betweenMs, maxLen, windowMs);
+        Map<String, Double> results = new LinkedHashMap<>();
+        results.put("linked", measureSortable(new LinkedStringList(), "linked", n, threads, insideMs, betweenMs, maxLen, windowMs));
+        results.put("array", measureArray(n, threads, insideMs, betweenMs, maxLen, windowMs));
+        printComparison(results);
+    }
 
-        double winner = Math.max(linked, array);
-        double loser = Math.min(linked, array);
+    private static void printComparison(Map<String, Double> results) {
+        String winnerName = null;
+        double winner = 0;
+        double loser = Double.MAX_VALUE;
+        StringBuilder line = new StringBuilder("COMPARISON:");
+        for (Map.Entry<String, Double> e : results.entrySet()) {
+            line.append(String.format(Locale.US, " %s=%.1f/s", e.getKey(), e.getValue()));
+            if (winnerName == null || e.getValue() > winner) {
+                winner = e.getValue();
+                winnerName = e.getKey();
+            }
+            loser = Math.min(loser, e.getValue());
+        }
         double ratio = winner / Math.max(1e-9, loser);
-        String winnerName = linked >= array ? "linked" : "array";
+        System.out.printf(Locale.US, "%s winner=%s ratio=%.2f%n", line, winnerName, ratio);
 
-        System.out.printf(Locale.US,
-                "COMPARISON: linked=%.1f/s array=%.1f/s winner=%s ratio=%.2f%n",
-                linked, array, winnerName, ratio);
-
-        printBar("linked", linked, winner);
-        printBar("array ", array, winner);
+        for (Map.Entry<String, Double> e : results.entrySet()) {
+            printBar(String.format("%-11s", e.getKey()), e.getValue(), winner);
+        }
     }
 
     private static void printBar(String name, double value, double max) {
@@ -70,22 +73,21 @@ public class ComparisonTest {
         System.out.printf(Locale.US, "%s |%s| %.1f/s%n", name, sb, value);
     }
 
-    private static double measureLinked(int n, int threads, long inside, long between,
-                                        int maxLen, long windowMs) throws Exception {
-        LinkedStringList list = new LinkedStringList();
+    private static double measureSortable(SortableStringList list, String name, int n, int threads,
+                                          long inside, long between, int maxLen, long windowMs) throws Exception {
         fillListLinked(list, n, maxLen);
-        AtomicLong steps = new AtomicLong();
+        LongAdder steps = new LongAdder();
         List<Thread> workers = new ArrayList<>();
         for (int i = 0; i < threads; i++) {
             LinkedListBubbleSorter r = new LinkedListBubbleSorter(list, between, inside, steps);
-            Thread t = new Thread(r, "cmp-linked-" + i);
+            Thread t = new Thread(r, "cmp-" + name + "-" + i);
             t.start();
             workers.add(t);
         }
         TimeUnit.MILLISECONDS.sleep(windowMs);
         for (Thread t : workers) t.interrupt();
         for (Thread t : workers) t.join(2000);
-        return steps.get() * (1000.0 / windowMs);
+        return steps.sum() * (1000.0 / windowMs);
     }
 
     private static double measureArray(int n, int threads, long inside, long between,
@@ -93,7 +95,7 @@ public class ComparisonTest {
         List<String> backing = new ArrayList<>();
         List<String> list = Collections.synchronizedList(backing);
         fillListArray(list, n, maxLen);
-        AtomicLong steps = new AtomicLong();
+        LongAdder steps = new LongAdder();
         List<Thread> workers = new ArrayList<>();
         for (int i = 0; i < threads; i++) {
             ArrayListBubbleSorter r = new ArrayListBubbleSorter(list, between, inside, steps);
@@ -104,10 +106,10 @@ public class ComparisonTest {
         TimeUnit.MILLISECONDS.sleep(windowMs);
         for (Thread t : workers) t.interrupt();
         for (Thread t : workers) t.join(2000);
-        return steps.get() * (1000.0 / windowMs);
+        return steps.sum() * (1000.0 / windowMs);
     }
 
-    private static void fillListLinked(LinkedStringList list, int n, int maxLen) {
+    private static void fillListLinked(IterableStringList list, int n, int maxLen) {
         Random r = new Random(42);
         for (int i = 0; i < n; i++) {
             String s = randomLetters(r, 10 + r.nextInt(30));
@@ -0,0 +1,46 @@
+package ru.nsu.chebotareva.tst;
+
+import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.app.ListExporter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExportTest {
+
+    @Test
+    void exportsSnapshotOrderOrSortedView() throws Exception {
+        Path file = Files.createTempDirectory("export-test").resolve("list.txt");
+        List<String> snapshot = Arrays.asList("delta", "\u0436\u0443\u043a", "alpha", "\u00e9t\u00e9", "bravo");
+
+        long bytes = ListExporter.exportToFile(snapshot, false, file);
+        assertEquals(Files.size(file), bytes);
+        assertEquals(snapshot, Files.readAllLines(file, StandardCharsets.UTF_8));
+
+        ListExporter.exportToFile(snapshot, true, file);
+        List<String> sorted = new ArrayList<>(snapshot);
+        Collections.sort(sorted);
+        assertEquals(sorted, Files.readAllLines(file, StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("delta", "\u0436\u0443\u043a", "alpha", "\u00e9t\u00e9", "bravo"), snapshot,
+                "The snapshot must not be modified");
+    }
+
+    @Test
+    void keepsOrderAcrossParallelParts() throws Exception {
+        Path file = Files.createTempDirectory("export-test").resolve("large.txt");
+        List<String> snapshot = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) snapshot.add(String.format("line-%06d", (i * 7919) % 50_000));
+
+        ListExporter.exportToFile(snapshot, false, file);
+        assertEquals(snapshot, Files.readAllLines(file, StandardCharsets.UTF_8));
+
+        ListExporter.exportToFile(snapshot, true, file);
+        List<String> sorted = new ArrayList<>(snapshot);
+        Collections.sort(sorted);
+        assertEquals(sorted, Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+}
@@ -1,43 +1,22 @@
 package ru.nsu.chebotareva.tst;
 
 import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.app.SortingMode;
 import ru.nsu.chebotareva.list.LinkedStringList;
+import ru.nsu.chebotareva.list.LockProfile;
 import ru.nsu.chebotareva.sort.LinkedListBubbleSorter;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-public class LinkedModeTest {
+public class LinkedModeTest extends ListModeContractTest {
 
-    @Test
-    void sortsWithDelaysAndMultipleThreads() throws Exception {
-        LinkedStringList list = new LinkedStringList();
-        for (String s : Arrays.asList("delta", "alpha", "charlie", "bravo")) {
-            list.addFirst(s);
-        }
-        int threads = 3;
-        long insideMs = 10;
-        long betweenMs = 10;
-        AtomicLong steps = new AtomicLong();
-        List<Thread> workers = new ArrayList<>();
-        for (int i = 0; i < threads; i++) {
-            LinkedListBubbleSorter r = new LinkedListBubbleSorter(list, betweenMs, insideMs, steps);
-            Thread t = new Thread(r, "spec-linked-" + i);
-            t.start();
-            workers.add(t);
-        }
-
-        TimeUnit.MILLISECONDS.sleep(600);
-        for (Thread t : workers) t.interrupt();
-        for (Thread t : workers) t.join(2000);
-
-        List<String> snap = list.snapshot();
-        assertTrue(steps.get() > 0, "There should be at least some sort steps");
-        assertEquals(4, snap.size());
-        assertEquals(Arrays.asList("alpha", "bravo", "charlie", "delta"), snap);
+    @Override
+    protected SortingMode mode() {
+        return SortingMode.CUSTOM_LINKED;
     }
 
     @Test
@@ -58,6 +37,56 @@ public class LinkedModeTest {
         assertEquals(chunks, snap);
     }
 
+    @Test
+    void linksStayConsistentAfterConcurrentInsertsAndSorting() throws Exception {
+        LinkedStringList list = new LinkedStringList();
+        list.checkInvariants();
+        LongAdder steps = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread t = new Thread(new LinkedListBubbleSorter(list, 0, 0, steps), "spec-linked-links-" + i);
+            t.start();
+            workers.add(t);
+        }
+        for (int i = 0; i < 200; i++) {
+            if (i % 5 == 0) list.addAllFirst(Arrays.asList("batch-" + i, "batch-" + i + "-tail"));
+            else list.addFirst("single-" + i);
+        }
+
+        TimeUnit.MILLISECONDS.sleep(300);
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+
+        list.checkInvariants();
+        assertEquals(240, list.size());
+        assertEquals(240, new HashSet<>(list.snapshot()).size());
+    }
+
+    @Test
+    void lockProfileCountsNodeLockAcquisitions() throws Exception {
+        assertNull(new LinkedStringList().lockProfile(), "Profiling is off by default");
+        LinkedStringList list = new LinkedStringList(true);
+        for (int i = 0; i < 200; i++) list.addFirst("item-" + (i * 31 % 200));
+        long afterInserts = list.lockProfile().acquisitions();
+        assertTrue(afterInserts >= 200, "Every addFirst locks the head");
+
+        LongAdder steps = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread t = new Thread(new LinkedListBubbleSorter(list, 0, 0, steps), "spec-linked-" + i);
+            t.start();
+            workers.add(t);
+        }
+        TimeUnit.MILLISECONDS.sleep(200);
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+
+        LockProfile profile = list.lockProfile();
+        assertTrue(profile.acquisitions() > afterInserts + steps.sum(), "Every comparison locks at least two nodes");
+        assertTrue(profile.contended() <= profile.acquisitions());
+        assertTrue(profile.contended() == 0 || profile.waitNanos() > 0);
+    }
+
     private static String randomLetters(int len) {
         Random r = new Random(42);
         StringBuilder sb = new StringBuilder(len);
@@ -0,0 +1,118 @@
+package ru.nsu.chebotareva.tst;
+
+import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.app.SortingMode;
+import ru.nsu.chebotareva.list.IterableStringList;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every sorted --mode shares: the list and its sorters come from the mode,
+ * so each subclass only names its mode and adds the cases specific to it.
+ */
+public abstract class ListModeContractTest {
+
+    protected abstract SortingMode mode();
+
+    @Test
+    void sortsWithDelaysAndMultipleThreads() throws Exception {
+        LongAdder steps = new LongAdder();
+        SortingMode.Setup setup = mode().create(3, 10, 10, steps);
+        IterableStringList list = setup.list();
+        for (String s : Arrays.asList("delta", "alpha", "charlie", "bravo")) {
+            list.addFirst(s);
+        }
+        List<Thread> workers = startSorters(setup);
+
+        TimeUnit.MILLISECONDS.sleep(600);
+        stop(workers);
+
+        List<String> snap = list.snapshot();
+        assertTrue(steps.sum() > 0, "There should be at least some sort steps");
+        assertEquals(4, snap.size());
+        assertEquals(Arrays.asList("alpha", "bravo", "charlie", "delta"), snap);
+    }
+
+    @Test
+    void snapshotSeesEveryElementOnceWhileSortersRun() throws Exception {
+        LongAdder steps = new LongAdder();
+        SortingMode.Setup setup = mode().create(4, 0, 0, steps);
+        IterableStringList list = setup.list();
+        Set<String> initial = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            String s = "item-" + (i * 7919 % 500);
+            initial.add(s);
+            list.addFirst(s);
+        }
+        List<Thread> workers = startSorters(setup);
+
+        for (int round = 0; round < 50; round++) {
+            List<String> snap = list.snapshot();
+            assertEquals(500, snap.size());
+            assertEquals(initial, new HashSet<>(snap));
+        }
+
+        stop(workers);
+        assertTrue(steps.sum() > 0, "There should be at least some sort steps");
+    }
+
+    @Test
+    void prependsWhileSortersRun() throws Exception {
+        SortingMode.Setup setup = mode().create(4, 0, 0, new LongAdder());
+        IterableStringList list = setup.list();
+        List<Thread> workers = startSorters(setup);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String s = String.format("item-%04d", i * 7919 % 2000);
+            expected.add(s);
+            list.addFirst(s);
+        }
+        Collections.sort(expected);
+
+        long deadline = System.currentTimeMillis() + 20000;
+        while (!list.snapshot().equals(expected) && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        stop(workers);
+
+        assertEquals(expected, list.snapshot());
+    }
+
+    @Test
+    void addAllFirstKeepsBatchOrderAheadOfExistingElements() {
+        IterableStringList list = mode().create(1, 0, 0, new LongAdder()).list();
+        list.addFirst("old-1");
+        list.addFirst("old-0");
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < 200; i++) batch.add("new-" + i);
+        list.addAllFirst(batch);
+
+        List<String> expected = new ArrayList<>(batch);
+        expected.add("old-0");
+        expected.add("old-1");
+        assertEquals(expected, list.snapshot());
+        assertEquals(expected.size(), list.size());
+        assertThrows(IllegalArgumentException.class, () -> list.addAllFirst(Arrays.asList("x", null)));
+        assertEquals(expected, list.snapshot());
+    }
+
+    private List<Thread> startSorters(SortingMode.Setup setup) {
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < setup.sorters().size(); i++) {
+            Thread t = new Thread(setup.sorters().get(i), "spec-" + mode().modeName() + "-" + i);
+            t.start();
+            workers.add(t);
+        }
+        return workers;
+    }
+
+    private static void stop(List<Thread> workers) throws InterruptedException {
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.nsu.chebotareva.tst;
+
+import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.sort.MergeInsertEngine;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MergeInsertModeTest {
+
+    @Test
+    void snapshotIsSortedBeforeAnyMerge() {
+        MergeInsertEngine list = new MergeInsertEngine(0, new LongAdder());
+        for (String s : Arrays.asList("delta", "alpha", "charlie", "bravo")) {
+            list.addFirst(s);
+        }
+        assertEquals(4, list.size());
+        assertEquals(Arrays.asList("alpha", "bravo", "charlie", "delta"), list.snapshot());
+    }
+
+    @Test
+    void mergesWithDelayBetweenMerges() throws Exception {
+        LongAdder steps = new LongAdder();
+        MergeInsertEngine list = new MergeInsertEngine(10, steps);
+        Thread t = new Thread(list.createWorker(), "spec-merge-0");
+        t.start();
+        for (String s : Arrays.asList("delta", "alpha", "charlie", "bravo")) {
+            list.addFirst(s);
+        }
+
+        TimeUnit.MILLISECONDS.sleep(300);
+        t.interrupt();
+        t.join(2000);
+
+        assertTrue(steps.sum() > 0, "There should be at least some merge comparisons");
+        assertEquals(Arrays.asList("alpha", "bravo", "charlie", "delta"), list.snapshot());
+        assertThrows(IllegalStateException.class, list::createWorker);
+    }
+
+    @Test
+    void readersSeeSortedCompleteViewWhileInsertsAndMergesRun() throws Exception {
+        MergeInsertEngine list = new MergeInsertEngine(0, new LongAdder());
+        Thread merger = new Thread(list.createWorker(), "spec-merge-0");
+        merger.start();
+
+        List<String> inserted = Collections.synchronizedList(new ArrayList<>());
+        Thread writer = new Thread(() -> {
+            Random rnd = new Random(3);
+            for (int i = 0; i < 5000; i++) {
+                String s = "item-" + rnd.nextInt(100000);
+                // Recorded only once added, so a reader never expects a string still on its way
+                list.addFirst(s);
+                inserted.add(s);
+            }
+        }, "spec-merge-writer");
+        writer.start();
+
+        try {
+            while (writer.isAlive()) {
+                int before = inserted.size();
+                List<String> snap = list.snapshot();
+                assertTrue(snap.size() >= before, "Snapshot lost inserted strings");
+                for (int i = 1; i < snap.size(); i++) {
+                    assertTrue(snap.get(i - 1).compareTo(snap.get(i)) <= 0, "Snapshot is not sorted");
+                }
+            }
+            writer.join();
+        } finally {
+            merger.interrupt();
+            merger.join(2000);
+        }
+
+        List<String> expected = new ArrayList<>(inserted);
+        Collections.sort(expected);
+        assertEquals(expected, list.snapshot());
+    }
+}
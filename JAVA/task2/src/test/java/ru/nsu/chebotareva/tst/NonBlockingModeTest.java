@@ -0,0 +1,58 @@
+package ru.nsu.chebotareva.tst;
+
+import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.app.SortingMode;
+import ru.nsu.chebotareva.list.NonBlockingStringList;
+import ru.nsu.chebotareva.sort.LinkedListBubbleSorter;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NonBlockingModeTest extends ListModeContractTest {
+
+    @Override
+    protected SortingMode mode() {
+        return SortingMode.NONBLOCKING;
+    }
+
+    @Test
+    void iteratorSeesEveryElementOnceWhileSortersRun() throws Exception {
+        NonBlockingStringList list = new NonBlockingStringList();
+        Set<String> initial = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            String s = "item-" + (i * 7919 % 500);
+            initial.add(s);
+            list.addFirst(s);
+        }
+        LongAdder steps = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread t = new Thread(new LinkedListBubbleSorter(list, 0, 0, steps), "spec-nonblocking-" + i);
+            t.start();
+            workers.add(t);
+        }
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 500; i++) list.addFirst("added-" + i);
+        }, "spec-nonblocking-writer");
+        writer.start();
+        workers.add(writer);
+
+        for (int round = 0; round < 50; round++) {
+            List<String> snap = new ArrayList<>();
+            for (String s : list) snap.add(s);
+            Set<String> distinct = new HashSet<>(snap);
+            assertEquals(snap.size(), distinct.size(), "Iterator must not return duplicates");
+            assertTrue(distinct.containsAll(initial), "Iterator must not lose elements");
+        }
+
+        writer.join(2000);
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+        assertTrue(steps.sum() > 0, "There should be at least some sort steps");
+        assertEquals(1000, list.size());
+        assertEquals(1000, new HashSet<>(list.snapshot()).size());
+    }
+}
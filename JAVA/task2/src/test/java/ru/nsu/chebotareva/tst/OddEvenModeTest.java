@@ -0,0 +1,65 @@
+package ru.nsu.chebotareva.tst;
+
+import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.app.SortingMode;
+import ru.nsu.chebotareva.sort.OddEvenTranspositionEngine;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OddEvenModeTest extends ListModeContractTest {
+
+    @Override
+    protected SortingMode mode() {
+        return SortingMode.ODDEVEN;
+    }
+
+    @Test
+    void sortsInsertionsArrivingWhileIdle() throws Exception {
+        LongAdder steps = new LongAdder();
+        OddEvenTranspositionEngine list = new OddEvenTranspositionEngine(4, 0, 0, steps);
+        List<Thread> workers = new ArrayList<>();
+        int i = 0;
+        for (Runnable r : list.createWorkers()) {
+            Thread t = new Thread(r, "spec-oddeven-" + i++);
+            t.start();
+            workers.add(t);
+        }
+
+        Random random = new Random(42);
+        List<String> expected = new ArrayList<>();
+        for (int batch = 0; batch < 5; batch++) {
+            for (int k = 0; k < 200; k++) {
+                String value = randomLetters(random, 1 + random.nextInt(20));
+                expected.add(value);
+                list.addFirst(value);
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        Collections.sort(expected);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!list.snapshot().equals(expected) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        // Two quiet phases confirm the order, then the workers park
+        TimeUnit.MILLISECONDS.sleep(100);
+        long idleSteps = steps.sum();
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(idleSteps, steps.sum(), "Workers must stay idle once the list is sorted");
+
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(2000);
+
+        assertEquals(expected, list.snapshot());
+    }
+
+    private static String randomLetters(Random r, int len) {
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) sb.append((char) ('a' + r.nextInt(26)));
+        return sb.toString();
+    }
+}
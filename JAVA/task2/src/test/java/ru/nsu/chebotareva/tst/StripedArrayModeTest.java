@@ -0,0 +1,11 @@
+package ru.nsu.chebotareva.tst;
+
+import ru.nsu.chebotareva.app.SortingMode;
+
+public class StripedArrayModeTest extends ListModeContractTest {
+
+    @Override
+    protected SortingMode mode() {
+        return SortingMode.STRIPED_ARRAY;
+    }
+}
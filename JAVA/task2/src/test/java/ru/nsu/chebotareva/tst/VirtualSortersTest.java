@@ -0,0 +1,52 @@
+package ru.nsu.chebotareva.tst;
+
+import org.junit.jupiter.api.Test;
+import ru.nsu.chebotareva.list.LinkedStringList;
+import ru.nsu.chebotareva.sort.LinkedListBubbleSorter;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualSortersTest {
+
+    @Test
+    void tenThousandVirtualSortersRunOnFewCarriers() throws Exception {
+        int sorters = 10_000;
+        LinkedStringList list = new LinkedStringList();
+        for (String s : Arrays.asList("echo", "delta", "alpha", "charlie", "bravo", "foxtrot")) {
+            list.addFirst(s);
+        }
+        int platformThreadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        LongAdder steps = new LongAdder();
+        CountDownLatch started = new CountDownLatch(sorters);
+        List<Thread> workers = new ArrayList<>(sorters);
+        for (int i = 0; i < sorters; i++) {
+            LinkedListBubbleSorter sorter = new LinkedListBubbleSorter(list, 1, 1, steps);
+            workers.add(Thread.ofVirtual().name("spec-virtual-" + i).start(() -> {
+                started.countDown();
+                sorter.run();
+            }));
+        }
+
+        assertTrue(started.await(10, TimeUnit.SECONDS), "All sorters should start");
+        TimeUnit.MILLISECONDS.sleep(500);
+        long alive = workers.stream().filter(Thread::isAlive).count();
+        int platformThreadsDuring = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        for (Thread t : workers) t.interrupt();
+        for (Thread t : workers) t.join(5000);
+
+        assertEquals(sorters, alive, "All sorters should be running at the same time");
+        // Only the carrier pool is added, not a thread per sorter
+        assertTrue(platformThreadsDuring - platformThreadsBefore <= Runtime.getRuntime().availableProcessors() + 8,
+                "Sorters must share a few carrier threads, got " + (platformThreadsDuring - platformThreadsBefore) + " new threads");
+        assertTrue(steps.sum() > 0, "There should be at least some sort steps");
+        assertEquals(Arrays.asList("alpha", "bravo", "charlie", "delta", "echo", "foxtrot"), list.snapshot());
+    }
+}
@@ -0,0 +1,123 @@
+package ru.nsu.chebotareva.bench;
+
+import ru.nsu.chebotareva.crawler.AsyncCrawler;
+import ru.nsu.chebotareva.crawler.Crawler;
+import ru.nsu.chebotareva.crawler.NonBlockingCrawler;
+import ru.nsu.chebotareva.http.HttpFactory;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the crawl engines against a local {@link StubServer}.
+ * <p>
+ * For each engine and graph size the whole graph is crawled once after a small
+ * warm-up crawl. Reports pages per second, the peak number of platform threads
+ * and the bytes allocated by the JVM during the crawl. The stub server runs in
+ * the same JVM, so allocation includes its share, which is the same for both engines.
+ * <p>
+ * Writes summary.csv with one row per run.
+ */
+public class CrawlBenchmark {
+    private static class BenchmarkConfig {
+        List<String> engines = List.of("virtual", "async");
+        int[] nodeCounts = {10_000, 100_000};
+        int fanout = 4;
+        int maxConcurrency = 64;
+        long delayMs = 0;
+        int warmupNodes = 2000;
+        long timeoutSec = 600;
+        Path outDir = Path.of("build", "bench");
+    }
+
+    private static BenchmarkConfig parseCommandLineArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+        for (String arg : args) {
+            if (arg.startsWith("--engines=")) config.engines = List.of(arg.substring("--engines=".length()).split(","));
+            else if (arg.startsWith("--nodes=")) config.nodeCounts = parseInts(arg.substring("--nodes=".length()));
+            else if (arg.startsWith("--fanout=")) config.fanout = Integer.parseInt(arg.substring("--fanout=".length()));
+            else if (arg.startsWith("--maxConcurrency=")) config.maxConcurrency = Integer.parseInt(arg.substring("--maxConcurrency=".length()));
+            else if (arg.startsWith("--delayMs=")) config.delayMs = Long.parseLong(arg.substring("--delayMs=".length()));
+            else if (arg.startsWith("--warmup=")) config.warmupNodes = Integer.parseInt(arg.substring("--warmup=".length()));
+            else if (arg.startsWith("--timeoutSec=")) config.timeoutSec = Long.parseLong(arg.substring("--timeoutSec=".length()));
+            else if (arg.startsWith("--out=")) config.outDir = Path.of(arg.substring("--out=".length()));
+            else throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        for (String engine : config.engines) {
+            if (!engine.equals("virtual") && !engine.equals("async")) throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+        return config;
+    }
+
+    private static int[] parseInts(String value) {
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) result[i] = Integer.parseInt(parts[i].trim());
+        return result;
+    }
+
+    private static Crawler createCrawler(String engine, HttpClient http) {
+        return switch (engine) {
+            case "virtual" -> new AsyncCrawler(http);
+            case "async" -> new NonBlockingCrawler(http);
+            default -> throw new IllegalStateException("Unknown engine: " + engine);
+        };
+    }
+
+    private record RunResult(int pages, double elapsedMs, int peakThreads, long allocatedBytes) {}
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkConfig config = parseCommandLineArgs(args);
+        Files.createDirectories(config.outDir);
+        Path summaryPath = config.outDir.resolve("summary.csv");
+
+        try (PrintWriter summary = new PrintWriter(Files.newBufferedWriter(summaryPath, StandardCharsets.UTF_8))) {
+            summary.println("engine,nodes,fanout,maxConcurrency,delayMs,pages,elapsedMs,pagesPerSec,peakThreads,allocatedMB,allocatedBytesPerPage");
+            for (String engine : config.engines) {
+                runOnce(engine, config.warmupNodes, config);
+                for (int nodes : config.nodeCounts) {
+                    RunResult result = runOnce(engine, nodes, config);
+                    double pagesPerSec = result.pages() / (result.elapsedMs() / 1000);
+                    double allocatedMb = result.allocatedBytes() / (1024.0 * 1024);
+                    long perPage = result.allocatedBytes() / Math.max(1, result.pages());
+                    summary.printf(Locale.US, "%s,%d,%d,%d,%d,%d,%.1f,%.0f,%d,%.1f,%d%n", engine, nodes, config.fanout,
+                            config.maxConcurrency, config.delayMs, result.pages(), result.elapsedMs(), pagesPerSec,
+                            result.peakThreads(), allocatedMb, perPage);
+                    summary.flush();
+                    System.out.printf(Locale.US,
+                            "CRAWL: engine=%s nodes=%d pages=%d time=%.0fms pages/s=%.0f peakThreads=%d allocated=%.1fMB (%d B/page)%n",
+                            engine, nodes, result.pages(), result.elapsedMs(), pagesPerSec, result.peakThreads(),
+                            allocatedMb, perPage);
+                    if (result.pages() != nodes) {
+                        System.out.println("WARNING: crawled " + result.pages() + " of " + nodes + " pages");
+                    }
+                }
+            }
+        }
+        System.out.println("Summary written to " + summaryPath.toAbsolutePath());
+    }
+
+    private static RunResult runOnce(String engine, int nodes, BenchmarkConfig config) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        try (StubServer stub = StubServer.start(nodes, config.fanout, config.delayMs)) {
+            HttpClient http = HttpFactory.create(Duration.ofSeconds(15));
+            Crawler crawler = createCrawler(engine, http);
+            System.gc();
+            threads.resetPeakThreadCount();
+            long allocatedBefore = threads.getTotalThreadAllocatedBytes();
+            long start = System.nanoTime();
+            List<String> messages = crawler.crawl(stub.baseUrl(), false, config.maxConcurrency,
+                    Duration.ofSeconds(config.timeoutSec));
+            double elapsedMs = (System.nanoTime() - start) / 1e6;
+            long allocated = threads.getTotalThreadAllocatedBytes() - allocatedBefore;
+            return new RunResult(messages.size(), elapsedMs, threads.getPeakThreadCount(), allocated);
+        }
+    }
+}
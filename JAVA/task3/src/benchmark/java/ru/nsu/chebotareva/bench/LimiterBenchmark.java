@@ -0,0 +1,149 @@
+package ru.nsu.chebotareva.bench;
+
+import ru.nsu.chebotareva.crawler.AsyncCrawler;
+import ru.nsu.chebotareva.crawler.CrawlOptions;
+import ru.nsu.chebotareva.crawler.Crawler;
+import ru.nsu.chebotareva.crawler.NonBlockingCrawler;
+import ru.nsu.chebotareva.http.HttpFactory;
+
+import java.io.PrintWriter;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shows the adaptive concurrency limit converging on a server of limited capacity.
+ * <p>
+ * The {@link StubServer} handles --capacity requests at once, each taking
+ * --delayMs, and queues the rest. A fixed --maxConcurrency far above the capacity
+ * only makes requests queue on the server; the adaptive limit should settle near
+ * the capacity with the same throughput and little queueing. The server's
+ * in-flight requests are sampled every --sampleMs, which is the concurrency the
+ * crawler actually applies. With --verbose the crawl logs every request and
+ * every change of the limit.
+ * <p>
+ * Writes limiter.csv with one row per mode and limiter_timeline.csv with the samples.
+ */
+public class LimiterBenchmark {
+    private static class BenchmarkConfig {
+        List<String> modes = List.of("fixed", "adaptive");
+        String engine = "async";
+        int nodes = 20_000;
+        int fanout = 4;
+        int maxConcurrency = 256;
+        long delayMs = 20;
+        int capacity = 16;
+        long sampleMs = 100;
+        boolean verbose;
+        Path outDir = Path.of("build", "bench");
+    }
+
+    private static BenchmarkConfig parseCommandLineArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+        for (String arg : args) {
+            if (arg.startsWith("--modes=")) config.modes = List.of(arg.substring("--modes=".length()).split(","));
+            else if (arg.startsWith("--engine=")) config.engine = arg.substring("--engine=".length());
+            else if (arg.startsWith("--nodes=")) config.nodes = Integer.parseInt(arg.substring("--nodes=".length()));
+            else if (arg.startsWith("--fanout=")) config.fanout = Integer.parseInt(arg.substring("--fanout=".length()));
+            else if (arg.startsWith("--maxConcurrency=")) config.maxConcurrency = Integer.parseInt(arg.substring("--maxConcurrency=".length()));
+            else if (arg.startsWith("--delayMs=")) config.delayMs = Long.parseLong(arg.substring("--delayMs=".length()));
+            else if (arg.startsWith("--capacity=")) config.capacity = Integer.parseInt(arg.substring("--capacity=".length()));
+            else if (arg.startsWith("--sampleMs=")) config.sampleMs = Long.parseLong(arg.substring("--sampleMs=".length()));
+            else if (arg.equals("--verbose")) config.verbose = true;
+            else if (arg.startsWith("--out=")) config.outDir = Path.of(arg.substring("--out=".length()));
+            else throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        for (String mode : config.modes) {
+            if (!mode.equals("fixed") && !mode.equals("adaptive")) throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        if (!config.engine.equals("virtual") && !config.engine.equals("async")) {
+            throw new IllegalArgumentException("Unknown engine: " + config.engine);
+        }
+        return config;
+    }
+
+    private record Sample(long timeMs, int serverInFlight, long served) {}
+
+    private record RunResult(int pages, double elapsedMs, double meanQueuedMs, double settledInFlight, List<Sample> samples) {}
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkConfig config = parseCommandLineArgs(args);
+        Files.createDirectories(config.outDir);
+        Path summaryPath = config.outDir.resolve("limiter.csv");
+        Path timelinePath = config.outDir.resolve("limiter_timeline.csv");
+        try (PrintWriter summary = new PrintWriter(Files.newBufferedWriter(summaryPath, StandardCharsets.UTF_8));
+             PrintWriter timeline = new PrintWriter(Files.newBufferedWriter(timelinePath, StandardCharsets.UTF_8))) {
+            summary.println("mode,engine,nodes,maxConcurrency,capacity,delayMs,pages,elapsedMs,pagesPerSec,meanQueuedMs,settledInFlight");
+            timeline.println("mode,timeMs,serverInFlight,served");
+            for (String mode : config.modes) {
+                RunResult result = runOnce(mode.equals("adaptive"), config);
+                double pagesPerSec = result.pages() / (result.elapsedMs() / 1000);
+                summary.printf(Locale.US, "%s,%s,%d,%d,%d,%d,%d,%.1f,%.0f,%.1f,%.1f%n", mode, config.engine, config.nodes,
+                        config.maxConcurrency, config.capacity, config.delayMs, result.pages(), result.elapsedMs(),
+                        pagesPerSec, result.meanQueuedMs(), result.settledInFlight());
+                summary.flush();
+                for (Sample sample : result.samples()) {
+                    timeline.printf(Locale.US, "%s,%d,%d,%d%n", mode, sample.timeMs(), sample.serverInFlight(), sample.served());
+                }
+                timeline.flush();
+                System.out.printf(Locale.US,
+                        "LIMITER: mode=%s pages=%d time=%.0fms pages/s=%.0f queued=%.1fms/request settledInFlight=%.1f (capacity %d)%n",
+                        mode, result.pages(), result.elapsedMs(), pagesPerSec, result.meanQueuedMs(),
+                        result.settledInFlight(), config.capacity);
+            }
+        }
+        System.out.println("Summary written to " + summaryPath.toAbsolutePath());
+    }
+
+    private static RunResult runOnce(boolean adaptive, BenchmarkConfig config) throws Exception {
+        try (StubServer stub = StubServer.start(config.nodes, config.fanout, config.delayMs, config.capacity)) {
+            HttpClient http = HttpFactory.create(Duration.ofSeconds(15));
+            CrawlOptions options = new CrawlOptions(null, CrawlOptions.DEFAULT.visited(), CrawlOptions.DEFAULT.bloomFpp(), adaptive,
+                    CrawlOptions.DEFAULT.requests(), CrawlOptions.DEFAULT.progress());
+            Crawler crawler = config.engine.equals("async") ? new NonBlockingCrawler(http, options) : new AsyncCrawler(http, options);
+
+            List<Sample> samples = new ArrayList<>();
+            AtomicBoolean running = new AtomicBoolean(true);
+            long start = System.nanoTime();
+            Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+                while (running.get()) {
+                    samples.add(new Sample((System.nanoTime() - start) / 1_000_000, stub.inFlight(), stub.served()));
+                    try {
+                        Thread.sleep(config.sampleMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            List<String> messages = crawler.crawl(stub.baseUrl(), config.verbose, config.maxConcurrency, Duration.ofMinutes(10));
+            double elapsedMs = (System.nanoTime() - start) / 1e6;
+            running.set(false);
+            sampler.join();
+
+            double meanQueuedMs = stub.queuedNanos() / 1e6 / Math.max(1, stub.served());
+            return new RunResult(messages.size(), elapsedMs, meanQueuedMs, settledInFlight(samples), samples);
+        }
+    }
+
+    /**
+     * Mean server concurrency from the middle of the run to its last tenth: after
+     * the limit has had time to converge and before the crawl runs out of pages.
+     */
+    private static double settledInFlight(List<Sample> samples) {
+        int from = samples.size() / 2;
+        int to = Math.max(from + 1, samples.size() * 9 / 10);
+        double sum = 0;
+        int count = 0;
+        for (int i = from; i < Math.min(to, samples.size()); i++) {
+            sum += samples.get(i).serverInFlight();
+            count++;
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+}
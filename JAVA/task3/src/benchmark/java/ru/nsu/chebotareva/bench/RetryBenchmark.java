@@ -0,0 +1,114 @@
+package ru.nsu.chebotareva.bench;
+
+import ru.nsu.chebotareva.crawler.AsyncCrawler;
+import ru.nsu.chebotareva.crawler.CrawlOptions;
+import ru.nsu.chebotareva.crawler.Crawler;
+import ru.nsu.chebotareva.crawler.NonBlockingCrawler;
+import ru.nsu.chebotareva.crawler.RequestPolicy;
+import ru.nsu.chebotareva.http.HttpFactory;
+
+import java.io.PrintWriter;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares request policies on a {@link StubServer} that fails a share of the
+ * requests with 503 and holds another share for a long time.
+ * <p>
+ * Modes: none (no retries, no hedging), retry (retries with backoff) and hedge
+ * (retries and hedged requests). Without retries, every failed page and the
+ * subtree behind it is lost; without hedging, the slowest pages decide when the
+ * crawl ends. Requests per page, counted by the server, is the price.
+ * <p>
+ * Writes retry.csv with one row per mode.
+ */
+public class RetryBenchmark {
+    private static class BenchmarkConfig {
+        List<String> modes = List.of("none", "retry", "hedge");
+        String engine = "async";
+        int nodes = 5000;
+        int fanout = 4;
+        int maxConcurrency = 64;
+        long delayMs = 5;
+        double errorRate = 0.03;
+        double slowRate = 0.01;
+        long slowMs = 3000;
+        int retries = RequestPolicy.DEFAULT.maxRetries();
+        Path outDir = Path.of("build", "bench");
+    }
+
+    private static BenchmarkConfig parseCommandLineArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+        for (String arg : args) {
+            if (arg.startsWith("--modes=")) config.modes = List.of(arg.substring("--modes=".length()).split(","));
+            else if (arg.startsWith("--engine=")) config.engine = arg.substring("--engine=".length());
+            else if (arg.startsWith("--nodes=")) config.nodes = Integer.parseInt(arg.substring("--nodes=".length()));
+            else if (arg.startsWith("--fanout=")) config.fanout = Integer.parseInt(arg.substring("--fanout=".length()));
+            else if (arg.startsWith("--maxConcurrency=")) config.maxConcurrency = Integer.parseInt(arg.substring("--maxConcurrency=".length()));
+            else if (arg.startsWith("--delayMs=")) config.delayMs = Long.parseLong(arg.substring("--delayMs=".length()));
+            else if (arg.startsWith("--errorRate=")) config.errorRate = Double.parseDouble(arg.substring("--errorRate=".length()));
+            else if (arg.startsWith("--slowRate=")) config.slowRate = Double.parseDouble(arg.substring("--slowRate=".length()));
+            else if (arg.startsWith("--slowMs=")) config.slowMs = Long.parseLong(arg.substring("--slowMs=".length()));
+            else if (arg.startsWith("--retries=")) config.retries = Integer.parseInt(arg.substring("--retries=".length()));
+            else if (arg.startsWith("--out=")) config.outDir = Path.of(arg.substring("--out=".length()));
+            else throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        for (String mode : config.modes) {
+            if (!mode.equals("none") && !mode.equals("retry") && !mode.equals("hedge")) {
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+            }
+        }
+        if (!config.engine.equals("virtual") && !config.engine.equals("async")) {
+            throw new IllegalArgumentException("Unknown engine: " + config.engine);
+        }
+        return config;
+    }
+
+    private record RunResult(int pages, double elapsedMs, long requests, long injectedErrors) {}
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkConfig config = parseCommandLineArgs(args);
+        Files.createDirectories(config.outDir);
+        Path summaryPath = config.outDir.resolve("retry.csv");
+        try (PrintWriter summary = new PrintWriter(Files.newBufferedWriter(summaryPath, StandardCharsets.UTF_8))) {
+            summary.println("mode,engine,nodes,errorRate,slowRate,slowMs,pages,elapsedMs,requests,requestsPerPage,injectedErrors");
+            for (String mode : config.modes) {
+                RunResult result = runOnce(policy(mode, config), config);
+                double requestsPerPage = result.requests() / (double) Math.max(1, result.pages());
+                summary.printf(Locale.US, "%s,%s,%d,%.3f,%.3f,%d,%d,%.1f,%d,%.3f,%d%n", mode, config.engine, config.nodes,
+                        config.errorRate, config.slowRate, config.slowMs, result.pages(), result.elapsedMs(),
+                        result.requests(), requestsPerPage, result.injectedErrors());
+                summary.flush();
+                System.out.printf(Locale.US, "RETRY: mode=%s pages=%d of %d time=%.0fms requests/page=%.3f injectedErrors=%d%n",
+                        mode, result.pages(), config.nodes, result.elapsedMs(), requestsPerPage, result.injectedErrors());
+            }
+        }
+        System.out.println("Summary written to " + summaryPath.toAbsolutePath());
+    }
+
+    private static RequestPolicy policy(String mode, BenchmarkConfig config) {
+        RequestPolicy defaults = RequestPolicy.DEFAULT;
+        return new RequestPolicy(defaults.requestTimeout(), mode.equals("none") ? 0 : config.retries,
+                defaults.baseBackoff(), defaults.maxBackoff(), mode.equals("hedge"));
+    }
+
+    private static RunResult runOnce(RequestPolicy policy, BenchmarkConfig config) throws Exception {
+        StubServer.Faults faults = new StubServer.Faults(config.errorRate, config.slowRate, config.slowMs);
+        try (StubServer stub = StubServer.start(config.nodes, config.fanout, config.delayMs, 0, faults)) {
+            HttpClient http = HttpFactory.create(Duration.ofSeconds(15));
+            CrawlOptions defaults = CrawlOptions.DEFAULT;
+            CrawlOptions options = new CrawlOptions(null, defaults.visited(), defaults.bloomFpp(), false, policy,
+                    defaults.progress());
+            Crawler crawler = config.engine.equals("async") ? new NonBlockingCrawler(http, options) : new AsyncCrawler(http, options);
+            long start = System.nanoTime();
+            List<String> messages = crawler.crawl(stub.baseUrl(), false, config.maxConcurrency, Duration.ofMinutes(10));
+            double elapsedMs = (System.nanoTime() - start) / 1e6;
+            return new RunResult(messages.size(), elapsedMs, stub.received(), stub.failed());
+        }
+    }
+}
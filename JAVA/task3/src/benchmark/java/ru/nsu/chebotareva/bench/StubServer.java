@@ -0,0 +1,214 @@
+package ru.nsu.chebotareva.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local server with a generated graph of the crawler's JSON pages.
+ * <p>
+ * Node 0 is "/", node i is "/n&lt;i&gt;". Every node links to its fanout children
+ * in a complete tree, plus a link back to its parent, so the
+ * crawler also has to skip visited paths. Each response can be delayed to
+ * emulate a remote server. With a capacity, the server handles at most that many
+ * requests at once and queues the rest, so latency grows with the client's
+ * concurrency as on a loaded server. {@link Faults} answer a share of the requests
+ * with 503 or hold them for a long time, independently for every request.
+ * <p>
+ * The server speaks HTTP/1.1 only; it counts the connections it accepted and
+ * the requests that asked for an h2c upgrade, which it declines.
+ */
+public final class StubServer implements AutoCloseable {
+    /**
+     * @param errorRate share of requests answered with 503
+     * @param slowRate share of requests delayed by slowMs on top of the usual delay
+     */
+    public record Faults(double errorRate, double slowRate, long slowMs) {
+        public static final Faults NONE = new Faults(0, 0, 0);
+    }
+
+    static {
+        // Headers and body are written separately; with Nagle's algorithm the body
+        // waits for the client's delayed ACK, adding ~40 ms to random responses
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int nodes;
+    private final int fanout;
+    private final long delayMs;
+    /** Client ends of accepted connections; each connection has a distinct local port */
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong upgradeRequests = new AtomicLong();
+    /** Null when the capacity is unlimited */
+    private final Semaphore slots;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong queuedNanos = new AtomicLong();
+    private final Faults faults;
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private StubServer(int nodes, int fanout, long delayMs, int capacity, Faults faults) throws IOException {
+        this.faults = faults;
+        this.nodes = nodes;
+        this.fanout = fanout;
+        this.delayMs = delayMs;
+        this.slots = capacity > 0 ? new Semaphore(capacity, true) : null;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static StubServer start(int nodes, int fanout, long delayMs) throws IOException {
+        return start(nodes, fanout, delayMs, 0);
+    }
+
+    /**
+     * @param capacity requests handled at once, 0 for no limit
+     */
+    public static StubServer start(int nodes, int fanout, long delayMs, int capacity) throws IOException {
+        return start(nodes, fanout, delayMs, capacity, Faults.NONE);
+    }
+
+    public static StubServer start(int nodes, int fanout, long delayMs, int capacity, Faults faults) throws IOException {
+        StubServer stub = new StubServer(nodes, fanout, delayMs, capacity, faults);
+        stub.server.start();
+        return stub;
+    }
+
+    public URI baseUrl() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    public int connections() {
+        return connections.size();
+    }
+
+    public long upgradeRequests() {
+        return upgradeRequests.get();
+    }
+
+    /**
+     * @return requests received and not answered yet, queued ones included
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long served() {
+        return served.get();
+    }
+
+    /**
+     * @return requests received for existing pages
+     */
+    public long received() {
+        return received.get();
+    }
+
+    /**
+     * @return requests answered with an injected 503
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * @return total time requests waited for a free slot
+     */
+    public long queuedNanos() {
+        return queuedNanos.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress());
+        if ("h2c".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Upgrade"))) upgradeRequests.incrementAndGet();
+        inFlight.incrementAndGet();
+        boolean slotTaken = false;
+        try (exchange) {
+            int node = nodeOf(exchange.getRequestURI().getPath());
+            if (node < 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            received.incrementAndGet();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < faults.errorRate()) {
+                failed.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            if (slots != null) {
+                long queuedAt = System.nanoTime();
+                slots.acquire();
+                slotTaken = true;
+                queuedNanos.addAndGet(System.nanoTime() - queuedAt);
+            }
+            if (delayMs > 0) Thread.sleep(delayMs);
+            if (random.nextDouble() < faults.slowRate()) Thread.sleep(faults.slowMs());
+            byte[] body = page(node).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            served.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (slotTaken) slots.release();
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private int nodeOf(String path) {
+        if (path.equals("/")) return 0;
+        if (!path.startsWith("/n")) return -1;
+        try {
+            int node = Integer.parseInt(path, 2, path.length(), 10);
+            return node > 0 && node < nodes ? node : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String page(int node) {
+        StringBuilder sb = new StringBuilder(64 + 16 * (fanout + 1));
+        sb.append("{\"message\":\"message-").append(node).append("\",\"successors\":[");
+        boolean first = true;
+        for (long child = (long) node * fanout + 1; child <= (long) node * fanout + fanout && child < nodes; child++) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("\"/n").append(child).append('"');
+        }
+        if (node > 0) {
+            // Link back to the parent, which is always visited already
+            int parent = (node - 1) / fanout;
+            if (!first) sb.append(',');
+            sb.append(parent == 0 ? "\"/\"" : "\"/n" + parent + "\"");
+        }
+        return sb.append("]}").toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,157 @@
+package ru.nsu.chebotareva.bench;
+
+import ru.nsu.chebotareva.crawler.AsyncCrawler;
+import ru.nsu.chebotareva.crawler.Crawler;
+import ru.nsu.chebotareva.crawler.NonBlockingCrawler;
+import ru.nsu.chebotareva.http.HttpFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares HttpClient transport settings on the same crawl.
+ * <p>
+ * A transport is written as VERSION/POOL/KEEPALIVE, e.g. 1.1/0/1200 or 2/0/1200.
+ * The client reads its pool settings once per JVM, so every transport is crawled
+ * in a child JVM. Against the built-in {@link StubServer} the number of TCP
+ * connections the server accepted is reported: with a small pool most requests
+ * pay for a new connection, which shows the handshake overhead in pages/s.
+ * <p>
+ * The stub server is HTTP/1.1 only and declines h2c upgrades, so HTTP/2 runs
+ * against it measure the fallback. To measure multiplexing, pass --baseUrl of an
+ * h2c-capable server serving the same pages; connections are then not counted.
+ * <p>
+ * Writes transport.csv with one row per transport.
+ */
+public class TransportBenchmark {
+    private static final String RESULT_PREFIX = "TRANSPORT_RESULT ";
+
+    private static class BenchmarkConfig {
+        List<String> transports = List.of("1.1/0/1200", "1.1/1/1200", "2/0/1200");
+        String engine = "async";
+        int nodes = 20_000;
+        int fanout = 4;
+        int maxConcurrency = 64;
+        long delayMs = 0;
+        URI baseUrl;
+        Path outDir = Path.of("build", "bench");
+    }
+
+    private static BenchmarkConfig parseCommandLineArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+        for (String arg : args) {
+            if (arg.startsWith("--transports=")) config.transports = List.of(arg.substring("--transports=".length()).split(","));
+            else if (arg.startsWith("--engine=")) config.engine = arg.substring("--engine=".length());
+            else if (arg.startsWith("--nodes=")) config.nodes = Integer.parseInt(arg.substring("--nodes=".length()));
+            else if (arg.startsWith("--fanout=")) config.fanout = Integer.parseInt(arg.substring("--fanout=".length()));
+            else if (arg.startsWith("--maxConcurrency=")) config.maxConcurrency = Integer.parseInt(arg.substring("--maxConcurrency=".length()));
+            else if (arg.startsWith("--delayMs=")) config.delayMs = Long.parseLong(arg.substring("--delayMs=".length()));
+            else if (arg.startsWith("--baseUrl=")) config.baseUrl = URI.create(arg.substring("--baseUrl=".length()));
+            else if (arg.startsWith("--out=")) config.outDir = Path.of(arg.substring("--out=".length()));
+            else if (!arg.startsWith("--child=")) throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        if (!config.engine.equals("virtual") && !config.engine.equals("async")) {
+            throw new IllegalArgumentException("Unknown engine: " + config.engine);
+        }
+        for (String spec : config.transports) parseTransport(spec);
+        return config;
+    }
+
+    private static HttpFactory.Transport parseTransport(String spec) {
+        String[] parts = spec.split("/");
+        if (parts.length != 3) throw new IllegalArgumentException("Invalid transport: " + spec);
+        HttpClient.Version version = switch (parts[0]) {
+            case "1.1" -> HttpClient.Version.HTTP_1_1;
+            case "2" -> HttpClient.Version.HTTP_2;
+            default -> throw new IllegalArgumentException("Invalid transport: " + spec);
+        };
+        return new HttpFactory.Transport(version, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                HttpFactory.Transport.DEFAULT.maxStreams());
+    }
+
+    private record RunResult(int pages, double elapsedMs, int connections, long upgradeRequests) {}
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.startsWith("--child=")) {
+                runChild(parseCommandLineArgs(args), arg.substring("--child=".length()));
+                return;
+            }
+        }
+
+        BenchmarkConfig config = parseCommandLineArgs(args);
+        Files.createDirectories(config.outDir);
+        Path summaryPath = config.outDir.resolve("transport.csv");
+        try (PrintWriter summary = new PrintWriter(Files.newBufferedWriter(summaryPath, StandardCharsets.UTF_8))) {
+            summary.println("transport,engine,nodes,maxConcurrency,delayMs,pages,elapsedMs,pagesPerSec,connections,pagesPerConnection,h2cUpgradeRequests");
+            for (String spec : config.transports) {
+                RunResult result = runInChildJvm(spec, args);
+                double pagesPerSec = result.pages() / (result.elapsedMs() / 1000);
+                double pagesPerConnection = result.connections() > 0 ? result.pages() / (double) result.connections() : -1;
+                summary.printf(Locale.US, "%s,%s,%d,%d,%d,%d,%.1f,%.0f,%d,%.1f,%d%n", spec, config.engine, config.nodes,
+                        config.maxConcurrency, config.delayMs, result.pages(), result.elapsedMs(), pagesPerSec,
+                        result.connections(), pagesPerConnection, result.upgradeRequests());
+                summary.flush();
+                System.out.printf(Locale.US,
+                        "TRANSPORT: %s engine=%s pages=%d time=%.0fms pages/s=%.0f connections=%d pages/connection=%.1f h2cUpgrades=%d%n",
+                        parseTransport(spec), config.engine, result.pages(), result.elapsedMs(), pagesPerSec,
+                        result.connections(), pagesPerConnection, result.upgradeRequests());
+            }
+        }
+        System.out.println("Summary written to " + summaryPath.toAbsolutePath());
+    }
+
+    private static RunResult runInChildJvm(String spec, String[] args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(TransportBenchmark.class.getName());
+        command.addAll(List.of(args));
+        command.add("--child=" + spec);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        RunResult result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    String[] fields = line.substring(RESULT_PREFIX.length()).split(" ");
+                    result = new RunResult(Integer.parseInt(fields[0]), Double.parseDouble(fields[1]),
+                            Integer.parseInt(fields[2]), Long.parseLong(fields[3]));
+                } else {
+                    System.out.println("  [" + spec + "] " + line);
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || result == null) throw new IllegalStateException("Run of " + spec + " failed with exit code " + exitCode);
+        return result;
+    }
+
+    private static void runChild(BenchmarkConfig config, String spec) throws Exception {
+        HttpClient http = HttpFactory.create(Duration.ofSeconds(15), parseTransport(spec));
+        Crawler crawler = config.engine.equals("async") ? new NonBlockingCrawler(http) : new AsyncCrawler(http);
+        StubServer stub = config.baseUrl == null ? StubServer.start(config.nodes, config.fanout, config.delayMs) : null;
+        try {
+            URI baseUrl = stub != null ? stub.baseUrl() : config.baseUrl;
+            long start = System.nanoTime();
+            List<String> messages = crawler.crawl(baseUrl, false, config.maxConcurrency, Duration.ofMinutes(10));
+            double elapsedMs = (System.nanoTime() - start) / 1e6;
+            System.out.println(RESULT_PREFIX + messages.size() + " " + String.format(Locale.US, "%.1f", elapsedMs) + " "
+                    + (stub != null ? stub.connections() : -1) + " " + (stub != null ? stub.upgradeRequests() : -1));
+        } finally {
+            if (stub != null) stub.close();
+        }
+    }
+}
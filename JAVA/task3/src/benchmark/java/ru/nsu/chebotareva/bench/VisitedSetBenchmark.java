@@ -0,0 +1,148 @@
+package ru.nsu.chebotareva.bench;
+
+import ru.nsu.chebotareva.crawler.VisitedSet;
+
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the visited-set strategies on synthetic paths.
+ * <p>
+ * Every thread adds its share of N distinct paths, then adds them all again, as
+ * a crawl meets most links more than once. Reports adds per second, the memory
+ * the set estimates for itself, the heap and direct memory it actually retained,
+ * and how many new paths were wrongly reported as seen (false positives).
+ * <p>
+ * Writes visited.csv with one row per strategy and size.
+ */
+public class VisitedSetBenchmark {
+    private static class BenchmarkConfig {
+        List<VisitedSet.Strategy> strategies = List.of(VisitedSet.Strategy.values());
+        int[] pathCounts = {1_000_000, 10_000_000};
+        int threads = 4;
+        double bloomFpp = 1e-6;
+        Path outDir = Path.of("build", "bench");
+    }
+
+    private static BenchmarkConfig parseCommandLineArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+        for (String arg : args) {
+            if (arg.startsWith("--strategies=")) config.strategies = parseStrategies(arg.substring("--strategies=".length()));
+            else if (arg.startsWith("--paths=")) config.pathCounts = parseInts(arg.substring("--paths=".length()));
+            else if (arg.startsWith("--threads=")) config.threads = Integer.parseInt(arg.substring("--threads=".length()));
+            else if (arg.startsWith("--bloomFpp=")) config.bloomFpp = Double.parseDouble(arg.substring("--bloomFpp=".length()));
+            else if (arg.startsWith("--out=")) config.outDir = Path.of(arg.substring("--out=".length()));
+            else throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        return config;
+    }
+
+    private static List<VisitedSet.Strategy> parseStrategies(String value) {
+        List<VisitedSet.Strategy> strategies = new ArrayList<>();
+        for (String name : value.split(",")) {
+            VisitedSet.Strategy strategy = VisitedSet.Strategy.fromName(name.trim());
+            if (strategy == null) throw new IllegalArgumentException("Unknown strategy: " + name);
+            strategies.add(strategy);
+        }
+        return strategies;
+    }
+
+    private static int[] parseInts(String value) {
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) result[i] = Integer.parseInt(parts[i].trim());
+        return result;
+    }
+
+    private record RunResult(double elapsedMs, long reportedBytes, long retainedHeapBytes, long directBytes,
+                             long falsePositives, long missedDuplicates) {}
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkConfig config = parseCommandLineArgs(args);
+        Files.createDirectories(config.outDir);
+        Path summaryPath = config.outDir.resolve("visited.csv");
+        try (PrintWriter summary = new PrintWriter(Files.newBufferedWriter(summaryPath, StandardCharsets.UTF_8))) {
+            summary.println("strategy,paths,threads,elapsedMs,mopsPerSec,reportedBytes,bytesPerPath,retainedHeapBytes,directBytes,falsePositives,falsePositiveRate,missedDuplicates");
+            for (int paths : config.pathCounts) {
+                for (VisitedSet.Strategy strategy : config.strategies) {
+                    RunResult result = run(strategy, paths, config);
+                    double mops = 2.0 * paths / (result.elapsedMs() * 1000);
+                    double bytesPerPath = result.reportedBytes() / (double) paths;
+                    double fpRate = result.falsePositives() / (double) paths;
+                    summary.printf(Locale.US, "%s,%d,%d,%.1f,%.2f,%d,%.1f,%d,%d,%d,%.3g,%d%n", strategy.strategyName(), paths,
+                            config.threads, result.elapsedMs(), mops, result.reportedBytes(), bytesPerPath,
+                            result.retainedHeapBytes(), result.directBytes(), result.falsePositives(), fpRate,
+                            result.missedDuplicates());
+                    summary.flush();
+                    System.out.printf(Locale.US,
+                            "VISITED: strategy=%s paths=%d time=%.0fms Mops/s=%.2f memory=%.1fMB bytes/path=%.1f heap=%.1fMB direct=%.1fMB falsePositives=%d (%.3g)%n",
+                            strategy.strategyName(), paths, result.elapsedMs(), mops, result.reportedBytes() / 1048576.0,
+                            bytesPerPath, result.retainedHeapBytes() / 1048576.0, result.directBytes() / 1048576.0,
+                            result.falsePositives(), fpRate);
+                }
+            }
+        }
+        System.out.println("Summary written to " + summaryPath.toAbsolutePath());
+    }
+
+    private static RunResult run(VisitedSet.Strategy strategy, int paths, BenchmarkConfig config) throws InterruptedException {
+        long heapBefore = usedHeapAfterGc();
+        long directBefore = directBytes();
+        VisitedSet set = VisitedSet.create(strategy, config.bloomFpp);
+        AtomicLong falsePositives = new AtomicLong();
+        AtomicLong missedDuplicates = new AtomicLong();
+
+        long start = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < config.threads; t++) {
+            int first = t;
+            workers.add(Thread.ofPlatform().start(() -> {
+                for (int i = first; i < paths; i += config.threads) {
+                    if (!set.add(path(i))) falsePositives.incrementAndGet();
+                }
+                for (int i = first; i < paths; i += config.threads) {
+                    if (set.add(path(i))) missedDuplicates.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread worker : workers) worker.join();
+        double elapsedMs = (System.nanoTime() - start) / 1e6;
+
+        long retainedHeap = usedHeapAfterGc() - heapBefore;
+        long direct = directBytes() - directBefore;
+        RunResult result = new RunResult(elapsedMs, set.memoryBytes(), retainedHeap, direct,
+                falsePositives.get(), missedDuplicates.get());
+        // Keeps the set reachable until it has been measured
+        if (set.size() < 0) throw new IllegalStateException();
+        return result;
+    }
+
+    /**
+     * Path shaped like the ones a crawl meets: a few levels, a numeric id.
+     */
+    private static String path(int i) {
+        return "/section-" + (i % 97) + "/item/" + i;
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+        }
+        return 0;
+    }
+}
@@ -1,10 +1,21 @@
 package ru.nsu.chebotareva;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.http.HttpClient;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 import ru.nsu.chebotareva.http.HttpFactory;
 import ru.nsu.chebotareva.crawler.AsyncCrawler;
+import ru.nsu.chebotareva.crawler.CrawlJournal;
+import ru.nsu.chebotareva.crawler.CrawlOptions;
+import ru.nsu.chebotareva.crawler.CrawlSummary;
+import ru.nsu.chebotareva.crawler.Crawler;
+import ru.nsu.chebotareva.crawler.NonBlockingCrawler;
+import ru.nsu.chebotareva.crawler.VisitedSet;
 import ru.nsu.chebotareva.cli.Args;
+import ru.nsu.chebotareva.json.Json;
+import ru.nsu.chebotareva.sort.ExternalSorter;
 import java.time.Duration;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -12,35 +23,80 @@ import java.nio.file.Path;
 public class Main {
     public static void main(String[] args) {
         Args.Config cfg = Args.parse(args);
-        HttpClient http = HttpFactory.create(Duration.ofSeconds(15));
+        HttpClient http = HttpFactory.create(Duration.ofSeconds(15), cfg.transport());
         System.out.println("Configuration:\n" +
                 "  baseUrl=" + cfg.baseUrl() + "\n" +
                 "  verbose=" + cfg.verbose() + "\n" +
-                "  maxConcurrency=" + cfg.maxConcurrency() + "\n" +
-                "  totalTimeoutSec=" + cfg.totalTimeoutSec() + (cfg.outPath() != null ? "\n  out=" + cfg.outPath() : ""));
+                "  maxConcurrency=" + cfg.maxConcurrency() + (cfg.adaptive() ? " (adaptive)" : "") + "\n" +
+                "  engine=" + cfg.engine() + "\n" +
+                "  transport=" + cfg.transport() + "\n" +
+                "  visited=" + cfg.visited().strategyName() + (cfg.visited() == VisitedSet.Strategy.BLOOM ? " (fpp=" + cfg.bloomFpp() + ")" : "") + "\n" +
+                "  requests=timeout " + cfg.requests().requestTimeout().toSeconds() + "s, " + cfg.requests().maxRetries() + " retries"
+                + (cfg.requests().hedge() ? ", hedged" : "") + "\n" +
+                "  totalTimeoutSec=" + cfg.totalTimeoutSec() + (cfg.outPath() != null ? "\n  out=" + cfg.outPath() : "") +
+                (cfg.journalPath() != null ? "\n  journal=" + cfg.journalPath() + (cfg.resume() ? " (resume)" : "") : "") +
+                (cfg.summaryPath() != null ? "\n  summary=" + cfg.summaryPath() : ""));
         if (cfg.verbose()) {
             System.out.println("HttpClient initialized");
         }
 
+        Path tmpDir = Path.of(cfg.tmpDir() != null ? cfg.tmpDir() : System.getProperty("java.io.tmpdir"));
+        ExternalSorter sorter = new ExternalSorter(tmpDir, cfg.sortBufferMb() * 1024L * 1024L);
+        CrawlJournal journal = null;
         try {
-            AsyncCrawler crawler = new AsyncCrawler(http);
-            List<String> messages = crawler.crawl(
+            if (cfg.journalPath() != null) {
+                journal = CrawlJournal.open(Path.of(cfg.journalPath()), cfg.baseUrl(), cfg.resume());
+                if (cfg.resume()) {
+                    System.out.println("Resuming: " + journal.restoredFetchedCount() + " of "
+                            + journal.restoredVisitedCount() + " discovered pages already fetched");
+                }
+            }
+            CrawlOptions options = new CrawlOptions(journal, cfg.visited(), cfg.bloomFpp(), cfg.adaptive(), cfg.requests(),
+                    cfg.progress());
+            Crawler crawler = cfg.engine().equals("async") ? new NonBlockingCrawler(http, options) : new AsyncCrawler(http, options);
+            CrawlSummary summary = crawler.crawl(
                     cfg.baseUrl(),
                     cfg.verbose(),
                     cfg.maxConcurrency(),
-                    Duration.ofSeconds(cfg.totalTimeoutSec()));
+                    Duration.ofSeconds(cfg.totalTimeoutSec()),
+                    sorter);
+            if (journal != null) journal.close();
+            if (cfg.summaryPath() != null) {
+                Path p = Path.of(cfg.summaryPath());
+                Json.mapper().writerWithDefaultPrettyPrinter().writeValue(p.toFile(), summary);
+                System.out.println("Run summary written to " + p.toAbsolutePath());
+            }
+            if (cfg.verbose()) {
+                System.out.println("Merging " + sorter.count() + " messages from " + sorter.spilledRuns()
+                        + " spilled runs in " + tmpDir.toAbsolutePath());
+            }
             if (cfg.outPath() != null) {
                 Path p = Path.of(cfg.outPath());
-                Files.write(p, messages);
-                System.out.println("Written " + messages.size() + " messages to " + p.toAbsolutePath());
-            } else {
-                for (String m : messages) {
-                    System.out.println(m);
+                long written;
+                try (Writer out = Files.newBufferedWriter(p, StandardCharsets.UTF_8)) {
+                    written = sorter.writeSorted(out);
                 }
+                System.out.println("Written " + written + " messages to " + p.toAbsolutePath());
+            } else {
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()));
+                sorter.writeSorted(out);
+                out.flush();
             }
+            sorter.close();
         } catch (Exception e) {
             System.err.println("Request failed: " + e.getMessage());
+            closeQuietly(journal);
+            closeQuietly(sorter);
             System.exit(2);
         }
     }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource == null) return;
+        try {
+            resource.close();
+        } catch (Exception ignored) {
+            // Already failing; an unflushed journal tail is dropped on resume
+        }
+    }
 }
\ No newline at end of file
@@ -1,21 +1,49 @@
 package ru.nsu.chebotareva.cli;
 
+import ru.nsu.chebotareva.crawler.RequestPolicy;
+import ru.nsu.chebotareva.crawler.VisitedSet;
+import ru.nsu.chebotareva.http.HttpFactory;
+
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.time.Duration;
 
 public final class Args {
     private Args() {}
 
-    public static record Config(URI baseUrl, boolean verbose, int maxConcurrency, int totalTimeoutSec, String outPath) {}
+    public static record Config(URI baseUrl, boolean verbose, int maxConcurrency, int totalTimeoutSec, String outPath, String engine,
+                                HttpFactory.Transport transport, String journalPath, boolean resume,
+                                VisitedSet.Strategy visited, double bloomFpp, int sortBufferMb, String tmpDir,
+                                boolean adaptive, RequestPolicy requests, boolean progress, String summaryPath) {}
 
     public static void printHelp() {
         System.out.println("Usage: java -jar task3.jar [options]\n" +
                 "Options:\n" +
                 "  --baseUrl <url>   Base server URL (default: http://localhost:8080)\n" +
                 "  --verbose|-v      Verbose logging\n" +
-                "  --maxConcurrency <n>      Max concurrent requests (default: 64)\n" +
+                "  --maxConcurrency <n>      Max concurrent requests per host (default: 64)\n" +
+                "  --adaptive                Adapt each host's concurrency to its latency and errors, up to --maxConcurrency\n" +
                 "  --totalTimeoutSec <n>     Total crawl timeout in seconds (default: 120)\n" +
+                "  --requestTimeoutSec <n>   Timeout of one request attempt in seconds (default: 15)\n" +
+                "  --retries <n>             Retries of a failed request or a 429/5xx response (default: 2)\n" +
+                "  --backoffMs <n>           Max wait before the first retry, doubling per retry, randomized (default: 100)\n" +
+                "  --maxBackoffMs <n>        Cap of the retry wait (default: 5000)\n" +
+                "  --hedge                   Send a second copy of requests slower than the p95 latency; first answer wins\n" +
                 "  --out <path>              Write sorted messages to file instead of stdout\n" +
+                "  --engine <name>           Crawl engine: virtual (thread per request) or async (sendAsync, default: virtual)\n" +
+                "  --http <1.1|2>            HTTP version; 2 multiplexes requests, using h2c for http URLs (default: 1.1)\n" +
+                "  --poolSize <n>            Idle HTTP/1.1 connections kept for reuse, 0 = unlimited (default: 0)\n" +
+                "  --keepAliveSec <n>        Idle connection keep-alive in seconds (default: 1200)\n" +
+                "  --maxStreams <n>          Max concurrent HTTP/2 streams per connection (default: 100)\n" +
+                "  --journal <path>          Record the crawl's progress in an append-only journal\n" +
+                "  --resume                  Continue the crawl recorded in --journal instead of starting over\n" +
+                "  --visited <name>          Visited set: exact, fingerprint (64-bit hashes) or bloom (default: exact)\n" +
+                "  --bloomFpp <p>            False-positive probability of the bloom visited set (default: 1e-6)\n" +
+                "  --sortBufferMB <n>        Messages kept in memory before a sorted run is spilled to disk (default: 64)\n" +
+                "  --tmpDir <path>           Directory for spilled runs (default: system temp directory)\n" +
+                "  --progress                Print a progress line to stderr every second\n" +
+                "  --summary <path>          Write a JSON summary of the run: requests, statuses, latency, bytes\n" +
                 "  --help|-h         Show this help and exit");
     }
 
@@ -32,6 +60,26 @@ public final class Args {
         int maxConcurrency = 64;
         int totalTimeoutSec = 120;
         String outPath = null;
+        String engine = "virtual";
+        HttpClient.Version httpVersion = HttpFactory.Transport.DEFAULT.version();
+        int poolSize = HttpFactory.Transport.DEFAULT.poolSize();
+        int keepAliveSec = HttpFactory.Transport.DEFAULT.keepAliveSec();
+        int maxStreams = HttpFactory.Transport.DEFAULT.maxStreams();
+        String journalPath = null;
+        boolean resume = false;
+        VisitedSet.Strategy visited = VisitedSet.Strategy.EXACT;
+        double bloomFpp = 1e-6;
+        int sortBufferMb = 64;
+        String tmpDir = null;
+        boolean adaptive = false;
+        RequestPolicy defaults = RequestPolicy.DEFAULT;
+        int requestTimeoutSec = (int) defaults.requestTimeout().toSeconds();
+        int retries = defaults.maxRetries();
+        int backoffMs = (int) defaults.baseBackoff().toMillis();
+        int maxBackoffMs = (int) defaults.maxBackoff().toMillis();
+        boolean hedge = defaults.hedge();
+        boolean progress = false;
+        String summaryPath = null;
 
         for (int i = 0; i < args.length; i++) {
             String a = args[i];
@@ -58,19 +106,102 @@ public final class Args {
                     if (i + 1 >= args.length) die("Missing value for --maxConcurrency");
                     maxConcurrency = parsePositiveInt(args[++i], "--maxConcurrency");
                     break;
+                case "--adaptive":
+                    adaptive = true;
+                    break;
                 case "--totalTimeoutSec":
                     if (i + 1 >= args.length) die("Missing value for --totalTimeoutSec");
                     totalTimeoutSec = parsePositiveInt(args[++i], "--totalTimeoutSec");
                     break;
+                case "--requestTimeoutSec":
+                    if (i + 1 >= args.length) die("Missing value for --requestTimeoutSec");
+                    requestTimeoutSec = parsePositiveInt(args[++i], "--requestTimeoutSec");
+                    break;
+                case "--retries":
+                    if (i + 1 >= args.length) die("Missing value for --retries");
+                    retries = parseNonNegativeInt(args[++i], "--retries");
+                    break;
+                case "--backoffMs":
+                    if (i + 1 >= args.length) die("Missing value for --backoffMs");
+                    backoffMs = parseNonNegativeInt(args[++i], "--backoffMs");
+                    break;
+                case "--maxBackoffMs":
+                    if (i + 1 >= args.length) die("Missing value for --maxBackoffMs");
+                    maxBackoffMs = parseNonNegativeInt(args[++i], "--maxBackoffMs");
+                    break;
+                case "--hedge":
+                    hedge = true;
+                    break;
                 case "--out":
                     if (i + 1 >= args.length) die("Missing value for --out");
                     outPath = args[++i];
                     break;
+                case "--engine":
+                    if (i + 1 >= args.length) die("Missing value for --engine");
+                    engine = args[++i];
+                    if (!engine.equals("virtual") && !engine.equals("async")) die("Unknown --engine: " + engine);
+                    break;
+                case "--http":
+                    if (i + 1 >= args.length) die("Missing value for --http");
+                    String version = args[++i];
+                    if (version.equals("1.1")) httpVersion = HttpClient.Version.HTTP_1_1;
+                    else if (version.equals("2")) httpVersion = HttpClient.Version.HTTP_2;
+                    else die("Unknown --http: " + version);
+                    break;
+                case "--poolSize":
+                    if (i + 1 >= args.length) die("Missing value for --poolSize");
+                    poolSize = parseNonNegativeInt(args[++i], "--poolSize");
+                    break;
+                case "--keepAliveSec":
+                    if (i + 1 >= args.length) die("Missing value for --keepAliveSec");
+                    keepAliveSec = parsePositiveInt(args[++i], "--keepAliveSec");
+                    break;
+                case "--maxStreams":
+                    if (i + 1 >= args.length) die("Missing value for --maxStreams");
+                    maxStreams = parsePositiveInt(args[++i], "--maxStreams");
+                    break;
+                case "--journal":
+                    if (i + 1 >= args.length) die("Missing value for --journal");
+                    journalPath = args[++i];
+                    break;
+                case "--resume":
+                    resume = true;
+                    break;
+                case "--visited":
+                    if (i + 1 >= args.length) die("Missing value for --visited");
+                    String strategy = args[++i];
+                    visited = VisitedSet.Strategy.fromName(strategy);
+                    if (visited == null) die("Unknown --visited: " + strategy);
+                    break;
+                case "--bloomFpp":
+                    if (i + 1 >= args.length) die("Missing value for --bloomFpp");
+                    bloomFpp = parseProbability(args[++i], "--bloomFpp");
+                    break;
+                case "--sortBufferMB":
+                    if (i + 1 >= args.length) die("Missing value for --sortBufferMB");
+                    sortBufferMb = parsePositiveInt(args[++i], "--sortBufferMB");
+                    break;
+                case "--tmpDir":
+                    if (i + 1 >= args.length) die("Missing value for --tmpDir");
+                    tmpDir = args[++i];
+                    break;
+                case "--progress":
+                    progress = true;
+                    break;
+                case "--summary":
+                    if (i + 1 >= args.length) die("Missing value for --summary");
+                    summaryPath = args[++i];
+                    break;
                 default:
                     die("Unknown option: " + a);
             }
         }
-        return new Config(baseUrl, verbose, maxConcurrency, totalTimeoutSec, outPath);
+        if (resume && journalPath == null) die("--resume requires --journal");
+        return new Config(baseUrl, verbose, maxConcurrency, totalTimeoutSec, outPath, engine,
+                new HttpFactory.Transport(httpVersion, poolSize, keepAliveSec, maxStreams), journalPath, resume,
+                visited, bloomFpp, sortBufferMb, tmpDir,
+                adaptive, new RequestPolicy(Duration.ofSeconds(requestTimeoutSec), retries, Duration.ofMillis(backoffMs),
+                Duration.ofMillis(maxBackoffMs), hedge), progress, summaryPath);
     }
 
     private static int parsePositiveInt(String s, String opt) {
@@ -83,4 +214,26 @@ public final class Args {
             return -1;
         }
     }
+
+    private static int parseNonNegativeInt(String s, String opt) {
+        try {
+            int v = Integer.parseInt(s);
+            if (v < 0) die(opt + " must be >= 0");
+            return v;
+        } catch (NumberFormatException e) {
+            die("Invalid integer for " + opt + ": " + s);
+            return -1;
+        }
+    }
+
+    private static double parseProbability(String s, String opt) {
+        try {
+            double v = Double.parseDouble(s);
+            if (!(v > 0 && v < 1)) die(opt + " must be in (0, 1)");
+            return v;
+        } catch (NumberFormatException e) {
+            die("Invalid number for " + opt + ": " + s);
+            return -1;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limiter that never blocks: acquire returns a future that completes
+ * when a permit is granted, so waiting requests hold no thread.
+ * <p>
+ * The limit can be changed at any time. A lower limit takes effect as requests
+ * in flight release their permits.
+ */
+final class AsyncLimiter {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    private final ConcurrentLinkedQueue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+    AsyncLimiter(int permits) {
+        this.limit = Math.max(1, permits);
+    }
+
+    /**
+     * Sets the limit without granting permits to waiting requests; call
+     * grantWaiting afterwards, outside of any lock, since granting runs their
+     * continuations.
+     */
+    void setLimit(int permits) {
+        limit = Math.max(1, permits);
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    CompletableFuture<Void> acquire() {
+        if (tryAcquire()) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        // A permit may have been released between the failed attempt and enqueueing
+        grantWaiting();
+        return waiter;
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+        grantWaiting();
+    }
+
+    /**
+     * Cancels all queued acquisitions; their futures complete with CancellationException.
+     */
+    void cancelWaiting() {
+        CompletableFuture<Void> waiter;
+        while ((waiter = waiters.poll()) != null) waiter.cancel(false);
+    }
+
+    /**
+     * @return true if a permit was free and has been taken
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) return false;
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    void grantWaiting() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            CompletableFuture<Void> waiter = waiters.poll();
+            // Taken by another thread, or cancelled: give the permit back and look again
+            if (waiter == null || !waiter.complete(null)) inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scalable Bloom filter: a chain of filters, each twice as large as the previous
+ * one and with half its false-positive probability, so the total stays below
+ * the target however many paths are added. Only the last filter takes new paths.
+ * <p>
+ * A false positive means a path is reported as visited and never fetched.
+ * The check and the setting of the bits of one path run under a lock striped by
+ * its hash, so two threads adding the same path at once never both see it as new.
+ */
+final class BloomVisitedSet implements VisitedSet {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long INITIAL_CAPACITY = 1 << 16;
+    private static final int STRIPE_BITS = 6;
+    /** Each next filter's false-positive probability relative to the previous one */
+    private static final double TIGHTENING = 0.5;
+
+    private final double fpp;
+    private final AtomicLong size = new AtomicLong();
+    private volatile Filter[] filters;
+    /** Guard the check-and-set of a path, chosen by the top bits of its first hash */
+    private final ReentrantLock[] locks = new ReentrantLock[1 << STRIPE_BITS];
+
+    BloomVisitedSet(double fpp) {
+        if (!(fpp > 0 && fpp < 1)) throw new IllegalArgumentException("False-positive probability must be in (0, 1): " + fpp);
+        this.fpp = fpp;
+        // The series p0 * (1 + r + r^2 + ...) sums to the target
+        filters = new Filter[] {new Filter(INITIAL_CAPACITY, fpp * (1 - TIGHTENING))};
+        for (int i = 0; i < locks.length; i++) locks[i] = new ReentrantLock();
+    }
+
+    @Override
+    public boolean add(String path) {
+        long h1 = VisitedSet.fingerprint(path);
+        long h2 = VisitedSet.mix(h1 ^ 0x9e3779b97f4a7c15L) | 1;
+        Filter last;
+        ReentrantLock lock = locks[(int) (h1 >>> (Long.SIZE - STRIPE_BITS))];
+        lock.lock();
+        try {
+            Filter[] current = filters;
+            for (int i = 0; i < current.length - 1; i++) {
+                if (current[i].mightContain(h1, h2)) return false;
+            }
+            last = current[current.length - 1];
+            if (!last.put(h1, h2)) return false;
+        } finally {
+            lock.unlock();
+        }
+        size.incrementAndGet();
+        if (last.count.incrementAndGet() == last.capacity) grow(last);
+        return true;
+    }
+
+    private synchronized void grow(Filter full) {
+        Filter[] current = filters;
+        if (current[current.length - 1] != full) return;
+        Filter[] grown = new Filter[current.length + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        grown[current.length] = new Filter(full.capacity * 2, full.fpp * TIGHTENING);
+        filters = grown;
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Filter filter : filters) bytes += (long) filter.words.length * Long.BYTES;
+        return bytes;
+    }
+
+    /**
+     * @return target false-positive probability of the whole chain
+     */
+    double fpp() {
+        return fpp;
+    }
+
+    private static final class Filter {
+        final long capacity;
+        final double fpp;
+        final long[] words;
+        final long bits;
+        final int hashes;
+        final AtomicLong count = new AtomicLong();
+
+        Filter(long capacity, double fpp) {
+            this.capacity = capacity;
+            this.fpp = fpp;
+            double ln2 = Math.log(2);
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(fpp) / (ln2 * ln2));
+            this.words = new long[(int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64)];
+            this.bits = (long) words.length * 64;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * ln2));
+        }
+
+        boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if (((long) WORDS.getAcquire(words, (int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Sets the bits of the path.
+         * @return true if at least one of them was clear, i.e. the path is new
+         */
+        boolean put(long h1, long h2) {
+            boolean added = false;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                long mask = 1L << bit;
+                long previous = (long) WORDS.getAndBitwiseOr(words, (int) (bit >>> 6), mask);
+                if ((previous & mask) == 0) added = true;
+            }
+            return added;
+        }
+    }
+}
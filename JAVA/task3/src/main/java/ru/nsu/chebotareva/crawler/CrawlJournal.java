@@ -0,0 +1,216 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-only journal of a crawl, so that an interrupted crawl can be resumed.
+ * <p>
+ * After a header with the base URL, the journal holds one record per discovered
+ * path and one per fetched path with its message. Discoveries are written before
+ * the record of the page they came from, and the journal is flushed after every
+ * fetched page, so a crash loses at most the pages being fetched at that moment.
+ * A record torn by a crash is dropped when the journal is reopened.
+ * <p>
+ * Paths whose fetch failed with an error get no fetched record and are fetched
+ * again on resume; pages answered with another status count as fetched.
+ */
+public final class CrawlJournal implements AutoCloseable {
+    private static final int MAGIC = 0x434A3031; // "CJ01"
+    private static final byte DISCOVERED = 'D';
+    private static final byte FETCHED = 'F';
+    private static final byte FETCHED_EMPTY = 'E';
+
+    /** Not a FileChannel: an interrupted crawl thread would close a channel it writes to */
+    private final RandomAccessFile file;
+    private final DataOutputStream out;
+    /** Restored state; emptied once the crawl has taken it */
+    private Set<String> visited = new LinkedHashSet<>();
+    private Set<String> fetched = new LinkedHashSet<>();
+    private List<String> messages = new ArrayList<>();
+    private boolean closed;
+
+    private CrawlJournal(RandomAccessFile file) throws IOException {
+        this.file = file;
+        // Shares the file's position, which open() moves to the end of the valid records
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.getFD()), 1 << 16));
+    }
+
+    /**
+     * Opens the journal of a crawl of baseUrl.
+     * @param resume true to restore the state recorded in an existing journal,
+     *               false to start a new journal in place of it
+     * @throws IOException if the journal cannot be read or belongs to another base URL
+     */
+    public static CrawlJournal open(Path file, URI baseUrl, boolean resume) throws IOException {
+        boolean restore = resume && Files.exists(file) && Files.size(file) > 0;
+        RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+        try {
+            CrawlJournal journal = new CrawlJournal(raf);
+            if (restore) {
+                long validEnd = journal.load(file, baseUrl);
+                raf.setLength(validEnd);
+                raf.seek(validEnd);
+            } else {
+                raf.setLength(0);
+                journal.out.writeInt(MAGIC);
+                writeString(journal.out, baseUrl.toString());
+                journal.out.flush();
+            }
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads all complete records.
+     * @return length of the valid part of the file
+     */
+    private long load(Path file, URI baseUrl) throws IOException {
+        long size = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a crawl journal: " + file);
+            String journalBase;
+            try {
+                journalBase = readString(in, size - 2L * Integer.BYTES);
+            } catch (EOFException e) {
+                // The header is flushed when the journal is created, so it cannot be torn
+                throw new IOException("Corrupted crawl journal: " + file);
+            }
+            if (!journalBase.equals(baseUrl.toString())) {
+                throw new IOException("Journal " + file + " belongs to a crawl of " + journalBase);
+            }
+            long position = Integer.BYTES + Integer.BYTES + journalBase.getBytes(StandardCharsets.UTF_8).length;
+            while (true) {
+                try {
+                    byte type = in.readByte();
+                    String path = readString(in, size - position - 1 - Integer.BYTES);
+                    long length = 1 + Integer.BYTES + utf8Length(path);
+                    if (type == DISCOVERED) {
+                        visited.add(path);
+                    } else if (type == FETCHED) {
+                        String message = readString(in, size - position - length - Integer.BYTES);
+                        length += Integer.BYTES + utf8Length(message);
+                        if (fetched.add(path)) messages.add(message);
+                    } else if (type == FETCHED_EMPTY) {
+                        fetched.add(path);
+                    } else {
+                        throw new IOException("Corrupted crawl journal: " + file);
+                    }
+                    position += length;
+                } catch (EOFException e) {
+                    return position;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return paths discovered in earlier sessions, including the fetched ones
+     */
+    Set<String> restoredVisited() {
+        return visited;
+    }
+
+    /**
+     * @return paths discovered in earlier sessions and not fetched yet, in discovery order
+     */
+    List<String> restoredFrontier() {
+        List<String> frontier = new ArrayList<>();
+        for (String path : visited) {
+            if (!fetched.contains(path)) frontier.add(path);
+        }
+        return frontier;
+    }
+
+    List<String> restoredMessages() {
+        return messages;
+    }
+
+    /**
+     * @return number of pages fetched in earlier sessions
+     */
+    public int restoredFetchedCount() {
+        return fetched.size();
+    }
+
+    public int restoredVisitedCount() {
+        return visited.size();
+    }
+
+    /**
+     * Drops the restored state once the crawl has copied it.
+     */
+    void releaseRestored() {
+        visited = Set.of();
+        fetched = Set.of();
+        messages = List.of();
+    }
+
+    synchronized void discovered(String path) throws IOException {
+        out.writeByte(DISCOVERED);
+        writeString(out, path);
+    }
+
+    /**
+     * @param message message of the page, or null if it had none or was not a 200 response
+     */
+    synchronized void fetched(String path, String message) throws IOException {
+        out.writeByte(message != null ? FETCHED : FETCHED_EMPTY);
+        writeString(out, path);
+        if (message != null) writeString(out, message);
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            out.flush();
+            file.getFD().sync();
+        } finally {
+            file.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @param available bytes left in the file after the length field
+     * @throws EOFException if the string would end past the end of the file, as in a torn record
+     */
+    private static String readString(DataInputStream in, long available) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("Corrupted crawl journal");
+        // Checked before allocating: a damaged length must not cost a huge array
+        if (length > available) throw new EOFException();
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one crawl. All of them are updated without locks, so that the
+ * request path does not wait for whoever reads them.
+ */
+final class CrawlMetrics {
+    /** Statuses outside of 100..599 are counted as 0 */
+    private static final int STATUS_SLOTS = 600;
+
+    final long startNanos = System.nanoTime();
+    final LongAdder pages = new LongAdder();
+    /** Pages that got a response, after any retries */
+    final LongAdder answered = new LongAdder();
+    final LongAdder attempts = new LongAdder();
+    final LongAdder retries = new LongAdder();
+    final LongAdder hedges = new LongAdder();
+    final LongAdder hedgeWins = new LongAdder();
+    final LongAdder hedgesSkipped = new LongAdder();
+    final LongAdder failures = new LongAdder();
+    final LongAdder bytesReceived = new LongAdder();
+    /** Requests sent and not answered yet */
+    final AtomicInteger inFlight = new AtomicInteger();
+    /** Latency of 200 responses; also decides when requests are hedged */
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram permitWait = new LatencyHistogram();
+    private final AtomicLongArray statuses = new AtomicLongArray(STATUS_SLOTS);
+
+    void response(int status, long rttNanos) {
+        statuses.incrementAndGet(status >= 100 && status < STATUS_SLOTS ? status : 0);
+        if (status == 200) latency.record(rttNanos);
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    String describeRequests() {
+        long pageCount = pages.sum();
+        long attemptCount = attempts.sum();
+        return String.format(Locale.ROOT,
+                "Requests: %d pages, %d sent, %d retries (%.1f%%), %d hedges (%.1f%%, %d won, %d skipped), %d failed, p95 %.1f ms",
+                pageCount, attemptCount, retries.sum(), percentOf(retries.sum(), pageCount), hedges.sum(),
+                percentOf(hedges.sum(), pageCount), hedgeWins.sum(), hedgesSkipped.sum(), failures.sum(),
+                latency.percentile(0.95) / 1e6);
+    }
+
+    CrawlSummary summary(String baseUrl, boolean timedOut, long visitedPaths, Map<String, Integer> concurrencyLimits) {
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        for (int i = 0; i < STATUS_SLOTS; i++) {
+            long count = statuses.get(i);
+            if (count > 0) byStatus.put(i, count);
+        }
+        return new CrawlSummary(baseUrl, elapsedNanos() / 1_000_000, timedOut, pages.sum(), answered.sum(), failures.sum(),
+                attempts.sum(), retries.sum(), hedges.sum(), hedgeWins.sum(), hedgesSkipped.sum(), bytesReceived.sum(),
+                byStatus, summarize(latency), summarize(permitWait), visitedPaths, concurrencyLimits);
+    }
+
+    private static CrawlSummary.Latency summarize(LatencyHistogram histogram) {
+        return new CrawlSummary.Latency(histogram.count(), histogram.mean() / 1e6, histogram.percentile(0.5) / 1e6,
+                histogram.percentile(0.9) / 1e6, histogram.percentile(0.99) / 1e6);
+    }
+
+    private static double percentOf(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+}
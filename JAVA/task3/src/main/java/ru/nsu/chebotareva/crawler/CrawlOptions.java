@@ -0,0 +1,17 @@
+package ru.nsu.chebotareva.crawler;
+
+/**
+ * Settings of a crawl that do not concern the requests themselves.
+ * @param journal journal to record progress in and resume from, or null
+ * @param visited how visited paths are remembered
+ * @param bloomFpp target false-positive probability when visited is BLOOM
+ * @param adaptiveConcurrency true to adapt each host's concurrency limit to its
+ *                            latency and errors, up to maxConcurrency
+ * @param requests timeouts, retries and hedging of the page requests
+ * @param progress true to print a progress line to stderr every second
+ */
+public record CrawlOptions(CrawlJournal journal, VisitedSet.Strategy visited, double bloomFpp, boolean adaptiveConcurrency,
+                           RequestPolicy requests, boolean progress) {
+    public static final CrawlOptions DEFAULT = new CrawlOptions(null, VisitedSet.Strategy.EXACT, 1e-6, false,
+            RequestPolicy.DEFAULT, false);
+}
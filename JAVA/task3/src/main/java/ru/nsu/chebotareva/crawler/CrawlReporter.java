@@ -0,0 +1,171 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The one thread that writes the output of a running crawl: the verbose log and,
+ * if enabled, a progress line on stderr every second.
+ * <p>
+ * Crawl threads only put their lines in a queue; printing them would have every
+ * request wait for the lock of System.out while the line is written. The thread
+ * takes all queued lines at once and prints them with one write per stream. The
+ * queue is bounded: lines that do not fit are dropped and counted, rather than
+ * slowing the crawl down to the speed of the terminal.
+ */
+final class CrawlReporter {
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int QUEUE_CAPACITY = 1 << 16;
+
+    private record Line(boolean error, String text) {}
+
+    /** Queued by stop, after the last line */
+    private static final Line END = new Line(false, null);
+
+    private final boolean verbose;
+    private final boolean progress;
+    private final CrawlMetrics metrics;
+    /** Paths discovered and not finished yet */
+    private final LongSupplier frontier;
+    private final BlockingQueue<Line> lines = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread thread;
+    /** Pages answered at the previous progress line; used by the reporter thread only */
+    private long lastAnswered;
+    private long lastProgressNanos;
+
+    CrawlReporter(boolean verbose, boolean progress, CrawlMetrics metrics, LongSupplier frontier) {
+        this.verbose = verbose;
+        this.progress = progress;
+        this.metrics = metrics;
+        this.frontier = frontier;
+    }
+
+    boolean verbose() {
+        return verbose;
+    }
+
+    /**
+     * Starts the thread, if there is anything to print; call before the crawl starts.
+     */
+    void start() {
+        if (!verbose && !progress) return;
+        lastProgressNanos = metrics.startNanos;
+        thread = Thread.ofPlatform().name("crawl-reporter").daemon(true).start(this::run);
+    }
+
+    /**
+     * Queues a line for stdout.
+     */
+    void log(String line) {
+        enqueue(new Line(false, line));
+    }
+
+    /**
+     * Queues a line for stderr.
+     */
+    void error(String line) {
+        enqueue(new Line(true, line));
+    }
+
+    private void enqueue(Line line) {
+        if (thread == null) {
+            (line.error() ? System.err : System.out).println(line.text());
+        } else if (!lines.offer(line)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Prints the lines queued so far and a last progress line, then stops the
+     * thread. Lines queued afterwards, by requests that end after the crawl, are
+     * not printed.
+     */
+    void stop() throws InterruptedException {
+        if (thread == null) return;
+        lines.put(END);
+        thread.join();
+    }
+
+    private void run() {
+        List<Line> batch = new ArrayList<>();
+        long nextProgress = metrics.startNanos + INTERVAL_NANOS;
+        try {
+            while (true) {
+                Line first = lines.poll(Math.max(0, nextProgress - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    lines.drainTo(batch);
+                    boolean end = print(batch);
+                    batch.clear();
+                    if (end) {
+                        if (progress) System.err.println(progressLine(System.nanoTime(), true));
+                        return;
+                    }
+                }
+                long now = System.nanoTime();
+                if (now >= nextProgress) {
+                    if (progress) System.err.println(progressLine(now, false));
+                    // A late tick is not made up for
+                    nextProgress = Math.max(nextProgress + INTERVAL_NANOS, now);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return true if the batch ends the log
+     */
+    private boolean print(List<Line> batch) {
+        StringBuilder out = new StringBuilder();
+        StringBuilder err = new StringBuilder();
+        String separator = System.lineSeparator();
+        boolean end = false;
+        for (Line line : batch) {
+            if (line == END) {
+                end = true;
+                break;
+            }
+            (line.error() ? err : out).append(line.text()).append(separator);
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) err.append(lost).append(" log lines dropped: output too slow").append(separator);
+        write(System.out, out);
+        write(System.err, err);
+        return end;
+    }
+
+    private static void write(PrintStream stream, StringBuilder text) {
+        if (text.isEmpty()) return;
+        stream.print(text);
+        stream.flush();
+    }
+
+    /**
+     * @param last true for the line printed at the end, which shows the mean rate of the whole crawl
+     */
+    private String progressLine(long now, boolean last) {
+        long answered = metrics.answered.sum();
+        long since = last ? metrics.startNanos : lastProgressNanos;
+        double seconds = (now - since) / 1e9;
+        double rate = seconds > 0 ? (answered - (last ? 0 : lastAnswered)) / seconds : 0;
+        lastAnswered = answered;
+        lastProgressNanos = now;
+        return String.format(Locale.ROOT,
+                "[%5.1fs] %d pages (%.0f/s), %d failed, frontier %d, %d in flight, %d requests, %.1f MB, "
+                        + "p50 %.1f ms, p99 %.1f ms, permit wait %.1f ms",
+                (now - metrics.startNanos) / 1e9, answered, rate, metrics.failures.sum(), frontier.getAsLong(),
+                metrics.inFlight.get(), metrics.attempts.sum(), metrics.bytesReceived.sum() / (1024.0 * 1024.0),
+                metrics.latency.percentile(0.5) / 1e6, metrics.latency.percentile(0.99) / 1e6,
+                metrics.permitWait.mean() / 1e6);
+    }
+}
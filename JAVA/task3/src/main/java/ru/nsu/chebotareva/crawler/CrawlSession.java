@@ -0,0 +1,138 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * One run of a crawl: its state, metrics, output and limiters, and the lifecycle
+ * shared by the engines. An engine only decides how a discovered path is fetched.
+ */
+abstract class CrawlSession {
+    final URI baseUrl;
+    final boolean verbose;
+    final CrawlState state;
+    final CrawlMetrics metrics = new CrawlMetrics();
+    final CrawlReporter log;
+    final HostLimiters limiters;
+    final PageFetcher fetcher;
+    /** Requests currently waiting for a response, cancelled on timeout */
+    final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+
+    CrawlSession(HttpClient http, CrawlOptions options, URI baseUrl, boolean verbose, int maxConcurrency, MessageSink sink) {
+        this.baseUrl = baseUrl;
+        this.verbose = verbose;
+        this.state = new CrawlState(options, sink);
+        this.log = new CrawlReporter(verbose, options.progress(), metrics, state::unfinished);
+        this.limiters = new HostLimiters(maxConcurrency, options.adaptiveConcurrency(), log);
+        this.fetcher = new PageFetcher(http, options.requests(), state, limiters, pending, metrics, log);
+    }
+
+    /**
+     * Fetches the path and everything reachable from it. Every path scheduled
+     * must be finished exactly once, also if it is never fetched.
+     * @param norm normalized path, already registered as unfinished
+     */
+    abstract void schedule(String norm);
+
+    /**
+     * Releases what the engine needs while the crawl runs; called once the crawl
+     * has ended, normally or not.
+     */
+    void shutdown() throws InterruptedException {
+    }
+
+    /**
+     * Runs the crawl until every reachable page is processed or the timeout expires.
+     */
+    final CrawlSummary run(Duration totalTimeout) throws InterruptedException {
+        boolean timedOut = false;
+        log.start();
+        try {
+            try {
+                start();
+                try {
+                    state.done.get(totalTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (verbose) log.error("Total timeout reached, cancelling remaining tasks");
+                    timedOut = true;
+                    cancel();
+                } catch (ExecutionException e) {
+                    cancel();
+                    throw new IllegalStateException(e.getCause());
+                }
+            } finally {
+                shutdown();
+            }
+            if (verbose) {
+                log.log(state.describeVisited());
+                for (String limit : limiters.describe()) log.log(limit);
+                log.log(metrics.describeRequests());
+            }
+        } finally {
+            log.stop();
+        }
+        return metrics.summary(baseUrl.toString(), timedOut, state.visited.size(), limiters.limits());
+    }
+
+    /**
+     * Starts at "/", or at the unfetched paths of a resumed crawl.
+     */
+    private void start() {
+        List<String> frontier = state.restore();
+        // Keeps the crawl open until all start paths are scheduled
+        state.register();
+        if (frontier == null) {
+            submit("/");
+        } else {
+            for (String path : frontier) {
+                state.register();
+                schedule(path);
+            }
+        }
+        state.finish();
+    }
+
+    /**
+     * Stops the crawl: no new requests start, and waiting and running ones are cancelled.
+     */
+    void cancel() {
+        state.cancelled.set(true);
+        limiters.cancelWaiting();
+        for (CompletableFuture<?> request : pending) request.cancel(true);
+    }
+
+    /**
+     * Schedules a path met on a page, unless it has been visited already.
+     */
+    void submit(String path) {
+        String norm = normalizePath(path);
+        if (state.cancelled.get() || !state.discover(norm)) return;
+        schedule(norm);
+    }
+
+    /**
+     * @return body handler of one attempt at a page, which submits the successors
+     *         while the rest of the page is still arriving
+     */
+    PageBodyHandler bodyHandler() {
+        return new PageBodyHandler(metrics.bytesReceived, s -> {
+            if (!state.cancelled.get()) submit(s);
+        });
+    }
+
+    static String normalizePath(String p) {
+        if (p == null) return "/";
+        String s = p.trim();
+        if (s.isEmpty()) return "/";
+        if (!s.startsWith("/")) s = "/" + s;
+        return s;
+    }
+}
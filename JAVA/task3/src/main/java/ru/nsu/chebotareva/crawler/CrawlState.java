@@ -0,0 +1,117 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of one crawl, shared by the engines: visited paths, collected messages
+ * and the count of paths not finished yet. done completes when the last path
+ * finishes; every page registers its successors before it finishes, so the count
+ * reaches zero only once the whole reachable graph is processed.
+ */
+final class CrawlState {
+    final VisitedSet visited;
+    private final VisitedSet.Strategy visitedStrategy;
+    private final MessageSink messages;
+    final AtomicBoolean cancelled = new AtomicBoolean(false);
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final CrawlJournal journal;
+
+    CrawlState(CrawlOptions options, MessageSink messages) {
+        this.messages = messages;
+        this.journal = options.journal();
+        this.visitedStrategy = options.visited();
+        this.visited = VisitedSet.create(options.visited(), options.bloomFpp());
+    }
+
+    /**
+     * Takes over the state restored by the journal.
+     * @return paths discovered earlier and still to be fetched, or null if there
+     *         is no earlier state and the crawl starts over
+     */
+    List<String> restore() {
+        if (journal == null || journal.restoredVisitedCount() == 0) return null;
+        for (String path : journal.restoredVisited()) visited.add(path);
+        for (String message : journal.restoredMessages()) messages.accept(message);
+        List<String> frontier = journal.restoredFrontier();
+        journal.releaseRestored();
+        return frontier;
+    }
+
+    /**
+     * Marks the path visited and registers it as unfinished. If the journal record
+     * cannot be written, the crawl fails and the path is not registered.
+     * @return false if the path has been visited already or the crawl failed
+     */
+    boolean discover(String norm) {
+        if (!visited.add(norm)) return false;
+        inFlight.incrementAndGet();
+        if (journal != null) {
+            try {
+                journal.discovered(norm);
+            } catch (IOException e) {
+                fail(e);
+                finish();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registers unfinished work without visiting a path: a path restored from the
+     * journal, or a guard that keeps the crawl open while start paths are scheduled.
+     */
+    void register() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Records a page that was answered. A page finished after cancellation is not
+     * journaled: successors met after the cancellation were skipped, so the page
+     * has to be fetched again on resume. If the message or the journal record
+     * cannot be written, the crawl fails.
+     * @param message message of the page, or null if it had none
+     */
+    void fetched(String norm, String message) {
+        try {
+            if (message != null) messages.accept(message);
+            if (journal != null && !cancelled.get()) journal.fetched(norm, message);
+        } catch (IOException | UncheckedIOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Stops the crawl with an error that makes its result incomplete.
+     */
+    void fail(Exception e) {
+        cancelled.set(true);
+        done.completeExceptionally(e);
+    }
+
+    /**
+     * Marks work registered by discover or register as finished.
+     */
+    void finish() {
+        if (inFlight.decrementAndGet() == 0) done.complete(null);
+    }
+
+    /**
+     * @return paths discovered and not finished yet: waiting, in flight or being processed
+     */
+    long unfinished() {
+        return inFlight.get();
+    }
+
+    String describeVisited() {
+        return String.format(Locale.ROOT, "Visited set: %s, %d paths, %.1f MB",
+                visitedStrategy.strategyName(), visited.size(), visited.memoryBytes() / (1024.0 * 1024.0));
+    }
+}
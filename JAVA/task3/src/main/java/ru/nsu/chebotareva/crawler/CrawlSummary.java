@@ -0,0 +1,28 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.util.Map;
+
+/**
+ * Totals of a finished crawl, written as the JSON run summary.
+ * @param elapsedMs         time from the start of the crawl to its end or timeout
+ * @param timedOut          true if the crawl was cancelled by its total timeout
+ * @param pages             pages requested, each with any number of retries and hedges
+ * @param pagesAnswered     pages that got a response, possibly an error status
+ * @param pagesFailed       pages whose last attempt failed without a response
+ * @param requests          requests sent, including retries and hedges
+ * @param bytesReceived     body bytes of the 200 responses
+ * @param statuses          responses per HTTP status, retried ones included
+ * @param pageLatency       time from sending a request to the end of a 200 response
+ * @param permitWait        time pages waited for a permit of their host, per attempt
+ * @param visitedPaths      paths in the visited set
+ * @param concurrencyLimits final concurrency limit per host
+ */
+public record CrawlSummary(String baseUrl, long elapsedMs, boolean timedOut, long pages, long pagesAnswered, long pagesFailed,
+                           long requests, long retries, long hedges, long hedgeWins, long hedgesSkipped, long bytesReceived,
+                           Map<Integer, Long> statuses, Latency pageLatency, Latency permitWait, long visitedPaths,
+                           Map<String, Integer> concurrencyLimits) {
+    /**
+     * Percentiles are upper bounds of histogram buckets, at most 12.5% above the exact value.
+     */
+    public record Latency(long count, double meanMs, double p50Ms, double p90Ms, double p99Ms) {}
+}
@@ -0,0 +1,30 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Crawls the graph reachable from "/" and collects the messages of its pages.
+ */
+public interface Crawler {
+    /**
+     * Passes every message to sink as soon as its page has been fetched.
+     * @return totals of the crawl, also when it was stopped by the timeout
+     */
+    CrawlSummary crawl(URI baseUrl, boolean verbose, int maxConcurrency, Duration totalTimeout, MessageSink sink) throws InterruptedException;
+
+    /**
+     * @return all messages in memory, sorted
+     */
+    default List<String> crawl(URI baseUrl, boolean verbose, int maxConcurrency, Duration totalTimeout) throws InterruptedException {
+        ConcurrentLinkedQueue<String> messages = new ConcurrentLinkedQueue<>();
+        crawl(baseUrl, verbose, maxConcurrency, totalTimeout, messages::add);
+        ArrayList<String> out = new ArrayList<>(messages);
+        Collections.sort(out);
+        return out;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps every path as a String in a concurrent hash set.
+ */
+final class ExactVisitedSet implements VisitedSet {
+    /** String header and its array header, plus the hash map node and its table slot */
+    private static final int ENTRY_OVERHEAD_BYTES = 24 + 16 + 32 + 8;
+
+    private final Set<String> paths = ConcurrentHashMap.newKeySet();
+    private final LongAdder pathChars = new LongAdder();
+
+    @Override
+    public boolean add(String path) {
+        if (!paths.add(path)) return false;
+        pathChars.add(path.length());
+        return true;
+    }
+
+    @Override
+    public long size() {
+        return paths.size();
+    }
+
+    @Override
+    public long memoryBytes() {
+        // Paths are mostly Latin-1, one byte per char
+        return paths.size() * (long) ENTRY_OVERHEAD_BYTES + pathChars.sum();
+    }
+}
@@ -0,0 +1,95 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps 64-bit fingerprints of paths in open-addressing hash tables of primitive
+ * longs, 8 bytes per slot at a load factor of at most one half, with no object
+ * per path. The set is split into stripes by the top bits of the fingerprint;
+ * each stripe has its own table and lock and grows independently.
+ * <p>
+ * The tables are heap arrays rather than direct buffers, so a table outgrown by a
+ * doubling is ordinary garbage instead of native memory held until its buffer
+ * object happens to be collected.
+ * <p>
+ * Exact as long as no two paths share a fingerprint: among a hundred million
+ * paths that happens with a probability below 0.03%.
+ */
+final class FingerprintVisitedSet implements VisitedSet {
+    private static final int STRIPE_BITS = 6;
+    private static final int INITIAL_SLOTS = 1 << 10;
+    /** Marks a free slot; a fingerprint equal to it is stored as FREE_REPLACEMENT */
+    private static final long FREE = 0;
+    private static final long FREE_REPLACEMENT = 1;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    FingerprintVisitedSet() {
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe();
+    }
+
+    @Override
+    public boolean add(String path) {
+        long fingerprint = VisitedSet.fingerprint(path);
+        if (fingerprint == FREE) fingerprint = FREE_REPLACEMENT;
+        return stripes[(int) (fingerprint >>> (Long.SIZE - STRIPE_BITS))].add(fingerprint);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) size += stripe.size;
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) bytes += (long) stripe.table.length * Long.BYTES;
+        return bytes;
+    }
+
+    private static final class Stripe {
+        /** Not synchronized: a virtual thread would pin its carrier while holding a monitor */
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long[] table = new long[INITIAL_SLOTS];
+        private volatile int size;
+
+        boolean add(long fingerprint) {
+            lock.lock();
+            try {
+                if (!insert(table, fingerprint)) return false;
+                size++;
+                if (size > table.length / 2) grow();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void grow() {
+            long[] old = table;
+            long[] grown = new long[old.length * 2];
+            for (long fingerprint : old) {
+                if (fingerprint != FREE) insert(grown, fingerprint);
+            }
+            table = grown;
+        }
+
+        /**
+         * Linear probing from the low bits; the top bits chose the stripe.
+         * @return false if the fingerprint is already in the table
+         */
+        private static boolean insert(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            for (int slot = (int) fingerprint & mask; ; slot = (slot + 1) & mask) {
+                long current = table[slot];
+                if (current == fingerprint) return false;
+                if (current == FREE) {
+                    table[slot] = fingerprint;
+                    return true;
+                }
+            }
+        }
+    }
+}
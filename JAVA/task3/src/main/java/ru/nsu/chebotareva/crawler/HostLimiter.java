@@ -0,0 +1,160 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit of the requests to one host.
+ * <p>
+ * A fixed limiter keeps --maxConcurrency permits. An adaptive one runs AIMD on
+ * the latency of the responses: starting small, it adds a permit per fast
+ * response until the first sign of overload (slow start), then a permit per
+ * limit's worth of fast responses. Latency is compared in the style of a
+ * gradient limiter: a short-term average above TOLERANCE times the long-term one
+ * means requests have started to queue. Then, or on a 429 or 5xx status or a
+ * failed request, the limit is multiplied by BACKOFF, at most once per round
+ * trip. The long-term average does not learn from queueing latency, so queueing
+ * cannot become the new normal, and falls at once with the short-term one. The
+ * limit stays between 1 and --maxConcurrency.
+ * <p>
+ * Latency that grows with concurrency lowers the limit even if throughput would
+ * still grow: the limit protects the host's latency, not the crawl's speed.
+ */
+final class HostLimiter {
+    private static final int INITIAL_ADAPTIVE_LIMIT = 4;
+    private static final double TOLERANCE = 1.5;
+    /** Keeps jitter of very fast responses from counting as queueing */
+    private static final long MIN_SLACK_NANOS = 1_000_000;
+    private static final double BACKOFF = 0.7;
+    private static final double SHORT_RTT_SMOOTHING = 0.1;
+    /** Time constant of the long-term average; per time, not per sample, so that it does not follow a slow build-up of load */
+    private static final long LONG_RTT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    final String host;
+    private final AsyncLimiter permits;
+    private final boolean adaptive;
+    private final int maxLimit;
+    private final CrawlReporter log;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private double limit;
+    private boolean slowStart = true;
+    private double shortRtt;
+    private double longRtt;
+    private long lastSampleNanos;
+    private long lastBackoffNanos;
+
+    HostLimiter(String host, int maxConcurrency, boolean adaptive, CrawlReporter log) {
+        this.host = host;
+        this.maxLimit = Math.max(1, maxConcurrency);
+        this.adaptive = adaptive;
+        this.log = log;
+        this.limit = adaptive ? Math.min(maxLimit, INITIAL_ADAPTIVE_LIMIT) : maxLimit;
+        this.permits = new AsyncLimiter((int) limit);
+        this.lastBackoffNanos = System.nanoTime() - TimeUnit.HOURS.toNanos(1);
+    }
+
+    CompletableFuture<Void> acquire() {
+        return permits.acquire();
+    }
+
+    /**
+     * Takes a permit only if one is free, for requests that are not worth waiting for.
+     */
+    boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    /**
+     * Releases the permit of a request that got an answer.
+     * @param rttNanos time from sending the request to the end of its body
+     */
+    void onResponse(long rttNanos, int status) {
+        boolean overloaded = status == 429 || status >= 500;
+        update(rttNanos, overloaded);
+        permits.release();
+    }
+
+    /**
+     * Releases the permit of a request that failed or timed out.
+     */
+    void onError(long rttNanos) {
+        update(rttNanos, true);
+        permits.release();
+    }
+
+    /**
+     * Releases the permit of a request that was cancelled; says nothing about the host.
+     */
+    void onCancelled() {
+        permits.release();
+    }
+
+    void cancelWaiting() {
+        permits.cancelWaiting();
+    }
+
+    int limit() {
+        return permits.limit();
+    }
+
+    String describe() {
+        lock.lock();
+        try {
+            return String.format(Locale.ROOT, "Concurrency limit %s: %d%s (RTT %.1f ms, long-term %.1f ms)",
+                    host, permits.limit(), adaptive ? " adaptive" : " fixed", shortRtt / 1e6, longRtt / 1e6);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void update(long rttNanos, boolean overloaded) {
+        if (!adaptive) return;
+        int before;
+        int after;
+        lock.lock();
+        try {
+            before = (int) limit;
+            long now = System.nanoTime();
+            if (shortRtt == 0) {
+                shortRtt = rttNanos;
+                longRtt = rttNanos;
+                lastSampleNanos = now;
+            }
+            shortRtt += SHORT_RTT_SMOOTHING * (rttNanos - shortRtt);
+            boolean queueing = shortRtt > longRtt * TOLERANCE + MIN_SLACK_NANOS;
+            // At the lowest limit the latency is the host's own, even if it has become slower
+            if (!overloaded && (!queueing || limit <= 1)) {
+                double weight = 1 - Math.exp(-(double) (now - lastSampleNanos) / LONG_RTT_WINDOW_NANOS);
+                longRtt += weight * (rttNanos - longRtt);
+            }
+            // Falls with the short-term average at once: slow first requests set no baseline
+            longRtt = Math.min(longRtt, shortRtt);
+            lastSampleNanos = now;
+
+            if (overloaded || queueing) {
+                // Responses already in flight reflect the old limit; react to them once
+                if (now - lastBackoffNanos >= shortRtt) {
+                    limit = Math.max(1, limit * BACKOFF);
+                    slowStart = false;
+                    lastBackoffNanos = now;
+                }
+            } else if (permits.inFlight() >= limit / 2) {
+                // Only a limit that is actually used is evidence the server can take more
+                limit = Math.min(maxLimit, limit + (slowStart ? 1 : 1 / limit));
+            }
+            after = (int) limit;
+            if (after != before) permits.setLimit(after);
+        } finally {
+            lock.unlock();
+        }
+        if (after != before) {
+            if (after > before) permits.grantWaiting();
+            if (log.verbose()) {
+                log.log(String.format(Locale.ROOT, "Concurrency limit %s: %d -> %d (RTT %.1f ms)", host, before, after, rttNanos / 1e6));
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The concurrency limiters of a crawl, one per host the crawl sends requests to.
+ */
+final class HostLimiters {
+    private final ConcurrentHashMap<String, HostLimiter> hosts = new ConcurrentHashMap<>();
+    private final int maxConcurrency;
+    private final boolean adaptive;
+    private final CrawlReporter log;
+
+    HostLimiters(int maxConcurrency, boolean adaptive, CrawlReporter log) {
+        this.maxConcurrency = maxConcurrency;
+        this.adaptive = adaptive;
+        this.log = log;
+    }
+
+    HostLimiter forHost(URI uri) {
+        String host = uri.getAuthority() != null ? uri.getAuthority() : "";
+        return hosts.computeIfAbsent(host, h -> new HostLimiter(h, maxConcurrency, adaptive, log));
+    }
+
+    void cancelWaiting() {
+        for (HostLimiter limiter : hosts.values()) limiter.cancelWaiting();
+    }
+
+    /**
+     * @return current concurrency limit per host
+     */
+    Map<String, Integer> limits() {
+        return hosts.values().stream().collect(Collectors.toMap(limiter -> limiter.host, HostLimiter::limit,
+                (a, b) -> a, TreeMap::new));
+    }
+
+    List<String> describe() {
+        return hosts.values().stream().map(HostLimiter::describe).sorted().toList();
+    }
+}
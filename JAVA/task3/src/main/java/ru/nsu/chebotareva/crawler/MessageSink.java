@@ -0,0 +1,10 @@
+package ru.nsu.chebotareva.crawler;
+
+/**
+ * Receives the messages of a crawl as pages are fetched. Called concurrently
+ * from the crawl's threads, in no particular order.
+ */
+@FunctionalInterface
+public interface MessageSink {
+    void accept(String message);
+}
@@ -0,0 +1,53 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Crawler built on sendAsync and future composition. No thread waits for a permit
+ * or a response: waiting requests are futures in the limiter's queue, and
+ * responses are processed on the HttpClient's executor as they arrive.
+ */
+public class NonBlockingCrawler implements Crawler {
+    private final HttpClient http;
+    private final CrawlOptions options;
+
+    public NonBlockingCrawler(HttpClient http) {
+        this(http, CrawlOptions.DEFAULT);
+    }
+
+    public NonBlockingCrawler(HttpClient http, CrawlOptions options) {
+        this.http = http;
+        this.options = options;
+    }
+
+    @Override
+    public CrawlSummary crawl(URI baseUrl, boolean verbose, int maxConcurrency, Duration totalTimeout, MessageSink sink)
+            throws InterruptedException {
+        return new Session(baseUrl, verbose, maxConcurrency, sink).run(totalTimeout);
+    }
+
+    private final class Session extends CrawlSession {
+        Session(URI baseUrl, boolean verbose, int maxConcurrency, MessageSink sink) {
+            super(http, options, baseUrl, verbose, maxConcurrency, sink);
+        }
+
+        @Override
+        void schedule(String norm) {
+            fetcher.fetch(baseUrl.resolve(norm), this::bodyHandler)
+                    .whenComplete((resp, error) -> {
+                        try {
+                            if (error == null && resp != null) {
+                                if (verbose) log.log("<- status=" + resp.statusCode());
+                                state.fetched(norm, resp.body());
+                            } else if (error != null && verbose && !state.cancelled.get()) {
+                                log.error("Error: " + error.getMessage());
+                            }
+                        } finally {
+                            state.finish();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.nsu.chebotareva.crawler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import ru.nsu.chebotareva.json.Json;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Parses a page while its body is being received. The bytes go straight into a
+ * non-blocking Jackson parser; every entry of "successors" is passed to the
+ * callback as soon as it is parsed, and the body of the response is the
+ * "message" field. Responses other than 200 are discarded unread.
+ */
+final class PageBodyHandler implements HttpResponse.BodyHandler<String> {
+    private final LongAdder bytesReceived;
+    private final Consumer<String> onSuccessor;
+
+    /**
+     * @param bytesReceived counts the body bytes of the 200 responses
+     */
+    PageBodyHandler(LongAdder bytesReceived, Consumer<String> onSuccessor) {
+        this.bytesReceived = bytesReceived;
+        this.onSuccessor = onSuccessor;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<String> apply(HttpResponse.ResponseInfo responseInfo) {
+        if (responseInfo.statusCode() != 200) return HttpResponse.BodySubscribers.replacing(null);
+        return new PageSubscriber(bytesReceived, onSuccessor);
+    }
+
+    private static final class PageSubscriber implements HttpResponse.BodySubscriber<String> {
+        private final LongAdder bytesReceived;
+        private final Consumer<String> onSuccessor;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private Flow.Subscription subscription;
+
+        /** Nesting level of the current token; the page object itself is level 1 */
+        private int depth;
+        private String field;
+        private boolean inSuccessors;
+        private String message;
+
+        PageSubscriber(LongAdder bytesReceived, Consumer<String> onSuccessor) {
+            this.bytesReceived = bytesReceived;
+            this.onSuccessor = onSuccessor;
+            try {
+                parser = Json.mapper().getFactory().createNonBlockingByteBufferParser();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        @Override
+        public CompletionStage<String> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    bytesReceived.add(buffer.remaining());
+                    feeder.feedInput(buffer);
+                    drain();
+                }
+            } catch (Exception e) {
+                subscription.cancel();
+                result.completeExceptionally(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                feeder.endOfInput();
+                drain();
+                parser.close();
+                result.complete(message);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Handles every token available from the bytes fed so far.
+         */
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                switch (token) {
+                    case START_OBJECT, START_ARRAY -> {
+                        if (depth == 1 && token == JsonToken.START_ARRAY && "successors".equals(field)) inSuccessors = true;
+                        depth++;
+                    }
+                    case END_OBJECT, END_ARRAY -> {
+                        depth--;
+                        if (depth == 1) inSuccessors = false;
+                    }
+                    case FIELD_NAME -> {
+                        if (depth == 1) field = parser.currentName();
+                    }
+                    case VALUE_STRING -> {
+                        if (depth == 1 && "message".equals(field)) message = parser.getText();
+                        else if (inSuccessors && depth == 2) onSuccessor.accept(parser.getText());
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Sends the requests of a crawl under the hosts' concurrency limits, retrying
+ * failed ones and hedging slow ones as the {@link RequestPolicy} says.
+ * <p>
+ * Each attempt holds a permit of its host only while it is in flight, not while
+ * it waits to be retried. Retries wait a random time up to a bound that doubles
+ * with every retry ("full jitter"), so that requests failed together do not come
+ * back together. A hedge is sent once an attempt has been in flight for longer
+ * than 95% of the responses so far, and only if its host has a permit free:
+ * a host without spare capacity is slow because it is busy, and a second copy
+ * would only add to it. Whichever copy succeeds first wins and the other one is
+ * cancelled.
+ * <p>
+ * fetch composes futures and never blocks; send does the same on the calling
+ * thread with the blocking HttpClient.send, for the thread-per-request engine.
+ */
+final class PageFetcher {
+    /** Responses needed before the 95th percentile is trusted for hedging */
+    private static final int MIN_HEDGE_SAMPLES = 50;
+
+    private final HttpClient http;
+    private final RequestPolicy policy;
+    private final CrawlState state;
+    private final HostLimiters limiters;
+    /** Requests currently waiting for a response, cancelled on timeout */
+    private final Set<CompletableFuture<?>> pending;
+    private final CrawlMetrics metrics;
+    private final CrawlReporter log;
+    private final boolean verbose;
+
+    PageFetcher(HttpClient http, RequestPolicy policy, CrawlState state, HostLimiters limiters,
+                Set<CompletableFuture<?>> pending, CrawlMetrics metrics, CrawlReporter log) {
+        this.http = http;
+        this.policy = policy;
+        this.state = state;
+        this.limiters = limiters;
+        this.pending = pending;
+        this.metrics = metrics;
+        this.log = log;
+        this.verbose = log.verbose();
+    }
+
+    /**
+     * @param handler creates the body handler of each attempt
+     * @return the final response, which may have a status that was retried in vain,
+     *         or null if the crawl has been cancelled; fails if the last attempt failed
+     */
+    CompletableFuture<HttpResponse<String>> fetch(URI uri, Supplier<HttpResponse.BodyHandler<String>> handler) {
+        metrics.pages.increment();
+        return attempt(uri, handler, 0);
+    }
+
+    private CompletableFuture<HttpResponse<String>> attempt(URI uri, Supplier<HttpResponse.BodyHandler<String>> handler, int retry) {
+        if (state.cancelled.get()) return CompletableFuture.completedFuture(null);
+        HostLimiter limiter = limiters.forHost(uri);
+        long waitStart = System.nanoTime();
+        return limiter.acquire()
+                .thenCompose(ignored -> {
+                    metrics.permitWait.record(System.nanoTime() - waitStart);
+                    return sendHedged(uri, handler, limiter);
+                })
+                .handle((resp, error) -> {
+                    if (state.cancelled.get()) return CompletableFuture.<HttpResponse<String>>completedFuture(null);
+                    if (retry < policy.maxRetries() && isRetryable(resp, error)) {
+                        metrics.retries.increment();
+                        long delayMs = backoffMs(retry);
+                        if (verbose) {
+                            log.log("Retry " + (retry + 1) + " of " + uri + " in " + delayMs + " ms: "
+                                    + (error != null ? unwrap(error).toString() : "status " + resp.statusCode()));
+                        }
+                        return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                                .thenCompose(ignored -> attempt(uri, handler, retry + 1));
+                    }
+                    if (error != null) {
+                        metrics.failures.increment();
+                        return CompletableFuture.<HttpResponse<String>>failedFuture(unwrap(error));
+                    }
+                    metrics.answered.increment();
+                    return CompletableFuture.completedFuture(resp);
+                })
+                .thenCompose(result -> result);
+    }
+
+    /**
+     * Sends the request under an acquired permit, plus a hedge if it gets slow.
+     */
+    private CompletableFuture<HttpResponse<String>> sendHedged(URI uri, Supplier<HttpResponse.BodyHandler<String>> handler,
+                                                               HostLimiter limiter) {
+        CompletableFuture<HttpResponse<String>> primary = send(uri, handler.get(), limiter);
+        long hedgeAfterNanos = hedgeAfterNanos();
+        if (hedgeAfterNanos == 0) return primary;
+
+        CompletableFuture<HttpResponse<String>> winner = new CompletableFuture<>();
+        // Copies that have not completed yet; the last failure fails the winner
+        AtomicInteger running = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<HttpResponse<String>>> hedge = new AtomicReference<>();
+        primary.whenComplete((resp, error) -> {
+            if (complete(winner, resp, error, running)) cancel(hedge.get());
+        });
+        CompletableFuture.delayedExecutor(hedgeAfterNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            if (winner.isDone() || state.cancelled.get()) return;
+            if (!limiter.tryAcquire()) {
+                metrics.hedgesSkipped.increment();
+                return;
+            }
+            metrics.hedges.increment();
+            running.incrementAndGet();
+            if (verbose) log.log("Hedge " + uri);
+            CompletableFuture<HttpResponse<String>> copy = send(uri, handler.get(), limiter);
+            hedge.set(copy);
+            // The primary may have won while the hedge was being sent
+            if (winner.isDone()) copy.cancel(true);
+            copy.whenComplete((resp, error) -> {
+                if (complete(winner, resp, error, running)) {
+                    metrics.hedgeWins.increment();
+                    primary.cancel(true);
+                }
+            });
+        });
+        return winner;
+    }
+
+    private static void cancel(CompletableFuture<?> request) {
+        if (request != null) request.cancel(true);
+    }
+
+    /**
+     * A failure, or a response that would be retried, wins only if the other copy
+     * is done as well.
+     * @return true if this copy's response won
+     */
+    private static boolean complete(CompletableFuture<HttpResponse<String>> winner, HttpResponse<String> resp,
+                                    Throwable error, AtomicInteger running) {
+        boolean last = running.decrementAndGet() == 0;
+        if (error == null && !isRetryable(resp, null)) return winner.complete(resp);
+        if (!last) return false;
+        if (error != null) winner.completeExceptionally(error);
+        else winner.complete(resp);
+        return false;
+    }
+
+    /**
+     * Sends one copy of the request under an acquired permit and releases the permit
+     * when it completes.
+     * @return the request itself, so that cancelling it cancels the exchange
+     */
+    private CompletableFuture<HttpResponse<String>> send(URI uri, HttpResponse.BodyHandler<String> handler, HostLimiter limiter) {
+        if (state.cancelled.get()) {
+            limiter.onCancelled();
+            return CompletableFuture.completedFuture(null);
+        }
+        if (verbose) log.log("GET " + uri);
+        HttpRequest req = HttpRequest.newBuilder(uri)
+                .GET()
+                .timeout(policy.requestTimeout())
+                .build();
+        metrics.attempts.increment();
+        metrics.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> request = http.sendAsync(req, handler);
+        pending.add(request);
+        if (state.cancelled.get()) request.cancel(true);
+        request.whenComplete((resp, error) -> {
+            pending.remove(request);
+            metrics.inFlight.decrementAndGet();
+            long rtt = System.nanoTime() - start;
+            if (error == null) {
+                limiter.onResponse(rtt, resp.statusCode());
+                metrics.response(resp.statusCode(), rtt);
+            // Cancelled as a losing hedge, or by the crawl's timeout
+            } else if (unwrap(error) instanceof CancellationException || state.cancelled.get()) {
+                limiter.onCancelled();
+            } else {
+                limiter.onError(rtt);
+            }
+        });
+        return request;
+    }
+
+    /**
+     * Fetches the page on the calling thread, waiting for permits, responses and
+     * backoffs, with the same retries and hedging as fetch.
+     * @return the final response, which may have a status that was retried in vain,
+     *         or null if the crawl has been cancelled
+     * @throws IOException if the last attempt failed
+     */
+    HttpResponse<String> send(URI uri, Supplier<HttpResponse.BodyHandler<String>> handler)
+            throws IOException, InterruptedException {
+        metrics.pages.increment();
+        HostLimiter limiter = limiters.forHost(uri);
+        for (int retry = 0; ; retry++) {
+            if (state.cancelled.get()) return null;
+            long waitStart = System.nanoTime();
+            if (!acquire(limiter)) return null;
+            metrics.permitWait.record(System.nanoTime() - waitStart);
+            HttpResponse<String> resp = null;
+            IOException error = null;
+            try {
+                resp = sendHedgedBlocking(uri, handler, limiter);
+            } catch (IOException e) {
+                error = e;
+            }
+            if (state.cancelled.get()) return null;
+            if (retry < policy.maxRetries() && isRetryable(resp, error)) {
+                metrics.retries.increment();
+                long delayMs = backoffMs(retry);
+                if (verbose) {
+                    log.log("Retry " + (retry + 1) + " of " + uri + " in " + delayMs + " ms: "
+                            + (error != null ? error.toString() : "status " + resp.statusCode()));
+                }
+                TimeUnit.MILLISECONDS.sleep(delayMs);
+                continue;
+            }
+            if (error != null) {
+                metrics.failures.increment();
+                throw error;
+            }
+            metrics.answered.increment();
+            return resp;
+        }
+    }
+
+    /**
+     * Waits for a permit of the host.
+     * @return false if the crawl was cancelled while waiting
+     */
+    private static boolean acquire(HostLimiter limiter) throws InterruptedException {
+        CompletableFuture<Void> permit = limiter.acquire();
+        try {
+            permit.get();
+            return true;
+        } catch (CancellationException e) {
+            return false;
+        } catch (InterruptedException e) {
+            // Granted in the meantime: give the permit back
+            if (!permit.cancel(false) && !permit.isCancelled()) limiter.onCancelled();
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Sends the request under an acquired permit on the calling thread. A hedge runs
+     * on a virtual thread of its own and the loser is cancelled by interrupting it.
+     */
+    private HttpResponse<String> sendHedgedBlocking(URI uri, Supplier<HttpResponse.BodyHandler<String>> handler,
+                                                    HostLimiter limiter) throws IOException, InterruptedException {
+        long hedgeAfterNanos = hedgeAfterNanos();
+        if (hedgeAfterNanos == 0) return sendBlocking(uri, handler.get(), limiter);
+
+        ExecutorService copies = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            ExecutorCompletionService<HttpResponse<String>> completed = new ExecutorCompletionService<>(copies);
+            completed.submit(() -> sendBlocking(uri, handler.get(), limiter));
+            int running = 1;
+            Future<HttpResponse<String>> hedge = null;
+            Future<HttpResponse<String>> done = completed.poll(hedgeAfterNanos, TimeUnit.NANOSECONDS);
+            if (done == null && !state.cancelled.get()) {
+                if (limiter.tryAcquire()) {
+                    metrics.hedges.increment();
+                    if (verbose) log.log("Hedge " + uri);
+                    hedge = completed.submit(() -> sendBlocking(uri, handler.get(), limiter));
+                    running++;
+                } else {
+                    metrics.hedgesSkipped.increment();
+                }
+            }
+            while (true) {
+                if (done == null) done = completed.take();
+                running--;
+                HttpResponse<String> resp = null;
+                Throwable error = null;
+                try {
+                    resp = done.get();
+                } catch (ExecutionException e) {
+                    error = e.getCause();
+                }
+                // A failure, or a response that would be retried, wins only if the other copy is done as well
+                if ((error == null && !isRetryable(resp, null)) || running == 0) {
+                    if (error == null && done == hedge) metrics.hedgeWins.increment();
+                    if (error instanceof IOException io) throw io;
+                    if (error != null) throw new IOException(error);
+                    return resp;
+                }
+                done = null;
+            }
+        } finally {
+            copies.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends one copy of the request under an acquired permit, waits for the response
+     * and releases the permit.
+     * @return the response, or null if the crawl has been cancelled
+     */
+    private HttpResponse<String> sendBlocking(URI uri, HttpResponse.BodyHandler<String> handler, HostLimiter limiter)
+            throws IOException, InterruptedException {
+        if (state.cancelled.get()) {
+            limiter.onCancelled();
+            return null;
+        }
+        if (verbose) log.log("GET " + uri);
+        HttpRequest req = HttpRequest.newBuilder(uri)
+                .GET()
+                .timeout(policy.requestTimeout())
+                .build();
+        metrics.attempts.increment();
+        metrics.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        HttpResponse<String> resp = null;
+        boolean failed = false;
+        try {
+            // An interrupt, by a winning hedge or the crawl's timeout, cancels the exchange
+            resp = http.send(req, handler);
+            return resp;
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        } finally {
+            metrics.inFlight.decrementAndGet();
+            long rtt = System.nanoTime() - start;
+            if (resp != null) {
+                limiter.onResponse(rtt, resp.statusCode());
+                metrics.response(resp.statusCode(), rtt);
+            } else if (failed && !state.cancelled.get()) {
+                limiter.onError(rtt);
+            } else {
+                limiter.onCancelled();
+            }
+        }
+    }
+
+    /**
+     * @return time after which a slow request gets a hedge, or 0 for no hedge
+     */
+    private long hedgeAfterNanos() {
+        return policy.hedge() && metrics.latency.count() >= MIN_HEDGE_SAMPLES ? metrics.latency.percentile(0.95) : 0;
+    }
+
+    private static boolean isRetryable(HttpResponse<String> resp, Throwable error) {
+        if (error != null) return !(unwrap(error) instanceof CancellationException);
+        return resp != null && (resp.statusCode() == 429 || resp.statusCode() >= 500);
+    }
+
+    private long backoffMs(int retry) {
+        long bound = Math.min(policy.maxBackoff().toMillis(), policy.baseBackoff().toMillis() << Math.min(retry, 30));
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
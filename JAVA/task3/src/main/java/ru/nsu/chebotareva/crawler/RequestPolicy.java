@@ -0,0 +1,17 @@
+package ru.nsu.chebotareva.crawler;
+
+import java.time.Duration;
+
+/**
+ * How a page request is sent, retried and hedged.
+ * @param requestTimeout timeout of one attempt
+ * @param maxRetries attempts after the first one for a failed request or a 429 or 5xx response
+ * @param baseBackoff upper bound of the wait before the first retry; doubles with every retry
+ * @param maxBackoff cap of the backoff upper bound
+ * @param hedge true to send a second copy of a request that is slower than 95% of
+ *              the responses so far; the first response wins
+ */
+public record RequestPolicy(Duration requestTimeout, int maxRetries, Duration baseBackoff, Duration maxBackoff, boolean hedge) {
+    public static final RequestPolicy DEFAULT = new RequestPolicy(Duration.ofSeconds(15), 2,
+            Duration.ofMillis(100), Duration.ofSeconds(5), false);
+}
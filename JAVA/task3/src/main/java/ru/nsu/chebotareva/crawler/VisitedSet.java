@@ -0,0 +1,84 @@
+package ru.nsu.chebotareva.crawler;
+
+/**
+ * Set of paths the crawl has already discovered.
+ */
+public interface VisitedSet {
+    enum Strategy {
+        /** Every path as a String on the heap */
+        EXACT("exact"),
+        /** 64-bit fingerprints of paths in primitive hash tables; exact unless two paths share a fingerprint */
+        FINGERPRINT("fingerprint"),
+        /** Scalable Bloom filter; a false positive skips a page that was never fetched */
+        BLOOM("bloom");
+
+        private final String strategyName;
+
+        Strategy(String strategyName) {
+            this.strategyName = strategyName;
+        }
+
+        public String strategyName() {
+            return strategyName;
+        }
+
+        /**
+         * @return the strategy with the given name, or null if there is none
+         */
+        public static Strategy fromName(String name) {
+            for (Strategy strategy : values()) {
+                if (strategy.strategyName.equals(name)) return strategy;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Adds the path if it is not in the set yet.
+     * @return true if the path was added, false if it was already there
+     */
+    boolean add(String path);
+
+    /**
+     * @return number of paths added
+     */
+    long size();
+
+    /**
+     * @return approximate memory taken by the set, in bytes
+     */
+    long memoryBytes();
+
+    /**
+     * @param bloomFpp target false-positive probability of the Bloom filter
+     */
+    static VisitedSet create(Strategy strategy, double bloomFpp) {
+        return switch (strategy) {
+            case EXACT -> new ExactVisitedSet();
+            case FINGERPRINT -> new FingerprintVisitedSet();
+            case BLOOM -> new BloomVisitedSet(bloomFpp);
+        };
+    }
+
+    /**
+     * 64-bit hash of a path: FNV-1a over the chars, then the MurmurHash3 finalizer
+     * to spread the bits.
+     */
+    static long fingerprint(String path) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            h ^= path.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -4,12 +4,59 @@ import java.net.http.HttpClient;
 import java.time.Duration;
 
 public final class HttpFactory {
+    private static Transport appliedTransport;
+
     private HttpFactory() {}
 
+    /**
+     * Transport settings of the client.
+     * <p>
+     * With HTTP_1_1 every concurrent request needs a connection of its own, and
+     * poolSize limits how many idle connections are kept for reuse (0 means no limit).
+     * HTTP_2 multiplexes up to maxStreams requests over one connection per host;
+     * for http:// URLs the client tries an h2c upgrade and stays on HTTP/1.1 if
+     * the server declines it. Idle connections are closed after keepAliveSec.
+     */
+    public record Transport(HttpClient.Version version, int poolSize, int keepAliveSec, int maxStreams) {
+        /** JDK defaults, on HTTP/1.1 */
+        public static final Transport DEFAULT = new Transport(HttpClient.Version.HTTP_1_1, 0, 1200, 100);
+
+        @Override
+        public String toString() {
+            return (version == HttpClient.Version.HTTP_2 ? "http2" : "http1.1") + " poolSize=" + poolSize
+                    + " keepAliveSec=" + keepAliveSec + " maxStreams=" + maxStreams;
+        }
+    }
+
     public static HttpClient create(Duration connectTimeout) {
+        return create(connectTimeout, Transport.DEFAULT);
+    }
+
+    public static HttpClient create(Duration connectTimeout, Transport transport) {
+        configureConnections(transport);
         return HttpClient.newBuilder()
                 .connectTimeout(connectTimeout)
-                .version(HttpClient.Version.HTTP_1_1)
+                .version(transport.version())
                 .build();
     }
+
+    /**
+     * The JDK client reads its pool and stream settings from system properties once,
+     * when the first client is created, so they can be chosen only once per JVM.
+     */
+    private static synchronized void configureConnections(Transport transport) {
+        if (appliedTransport != null) {
+            if (appliedTransport.poolSize() != transport.poolSize()
+                    || appliedTransport.keepAliveSec() != transport.keepAliveSec()
+                    || appliedTransport.maxStreams() != transport.maxStreams()) {
+                throw new IllegalStateException("Connection settings are already fixed for this JVM: " + appliedTransport);
+            }
+            return;
+        }
+        System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(transport.poolSize()));
+        System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(transport.keepAliveSec()));
+        System.setProperty("jdk.httpclient.keepalive.timeout.h2", String.valueOf(transport.keepAliveSec()));
+        System.setProperty("jdk.httpclient.maxstreams", String.valueOf(transport.maxStreams()));
+        appliedTransport = transport;
+    }
 }
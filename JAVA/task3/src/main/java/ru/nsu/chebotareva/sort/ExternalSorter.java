@@ -0,0 +1,406 @@
+package ru.nsu.chebotareva.sort;
+
+import ru.nsu.chebotareva.crawler.MessageSink;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sorts messages that may not fit in the heap.
+ * <p>
+ * Messages are buffered until the buffer holds about runBytes, then the buffer is
+ * handed to a background thread that sorts it and writes it to a temporary file as
+ * a sorted run, while new messages go to a fresh buffer. At most two buffers exist
+ * at a time: a thread that fills the buffer while the previous one is still being
+ * written waits for it. The sorted output is a k-way merge of the runs and the
+ * last buffer, streamed to a Writer.
+ */
+public final class ExternalSorter implements MessageSink, Closeable {
+    /** String header and its array header, plus the buffer slot */
+    private static final int ENTRY_OVERHEAD_BYTES = 24 + 16 + 8;
+    /** Runs merged at once; more runs are first merged into larger ones */
+    static final int MAX_FAN_IN = 64;
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+
+    private final Path tempDir;
+    private final long runBytes;
+    /** Sorts and writes the runs one at a time, off the threads delivering messages */
+    private final ExecutorService spiller = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("sort-spiller").daemon(true).factory());
+    /** Guards the fields below; not synchronized, so virtual threads do not pin their carriers */
+    private final ReentrantLock lock = new ReentrantLock();
+    private ArrayList<String> buffer = new ArrayList<>();
+    private long bufferedBytes;
+    private long count;
+    private boolean sealed;
+    /** Run being written, or the last one written; null before the first */
+    private Future<?> lastSpill;
+    private final List<Path> runs = new ArrayList<>();
+    private int spilledRuns;
+
+    /**
+     * @param tempDir  directory for the sorted runs
+     * @param runBytes approximate heap taken by the messages of one run
+     */
+    public ExternalSorter(Path tempDir, long runBytes) {
+        if (runBytes <= 0) throw new IllegalArgumentException("Run size must be > 0: " + runBytes);
+        this.tempDir = tempDir;
+        this.runBytes = runBytes;
+    }
+
+    /**
+     * Buffers the message, spilling the buffer once it is full. Messages arriving
+     * after {@link #writeSorted} has started are dropped.
+     * @throws UncheckedIOException if a run cannot be written
+     */
+    @Override
+    public void accept(String message) {
+        boolean full;
+        lock.lock();
+        try {
+            if (sealed) return;
+            buffer.add(message);
+            count++;
+            bufferedBytes += ENTRY_OVERHEAD_BYTES + message.length();
+            full = bufferedBytes >= runBytes;
+        } finally {
+            lock.unlock();
+        }
+        if (full) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Hands the full buffer to the spiller, first waiting for the previous run if
+     * it is still being written.
+     */
+    private void spill() throws IOException {
+        while (true) {
+            Future<?> previous;
+            lock.lock();
+            try {
+                // Another thread may have spilled the buffer while this one waited
+                if (sealed || bufferedBytes < runBytes) return;
+                previous = lastSpill;
+                if (previous == null || previous.isDone()) {
+                    if (previous != null) awaitSpill(previous);
+                    ArrayList<String> run = buffer;
+                    buffer = new ArrayList<>();
+                    bufferedBytes = 0;
+                    lastSpill = spiller.submit(() -> {
+                        writeRun(run);
+                        return null;
+                    });
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            awaitSpill(previous);
+        }
+    }
+
+    /**
+     * Waits for a run to be written. Not interruptible, as a crawl thread delivering
+     * a message may be interrupted by the crawl's timeout.
+     * @throws IOException if the run could not be written
+     */
+    private static void awaitSpill(Future<?> spill) throws IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    spill.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) throw io;
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting messages and writes all of them in sorted order, one per line.
+     * @return number of messages written
+     */
+    public long writeSorted(Writer out) throws IOException {
+        ArrayList<String> tail;
+        Future<?> previous;
+        lock.lock();
+        try {
+            sealed = true;
+            tail = buffer;
+            buffer = new ArrayList<>();
+            bufferedBytes = 0;
+            previous = lastSpill;
+        } finally {
+            lock.unlock();
+        }
+        tail.sort(null);
+        if (previous != null) awaitSpill(previous);
+        spiller.shutdown();
+
+        List<Path> sorted = runs();
+        // One source is left for the tail
+        while (sorted.size() > MAX_FAN_IN - 1) {
+            List<Path> batch = new ArrayList<>(sorted.subList(0, MAX_FAN_IN));
+            Path merged = mergeRuns(batch);
+            lock.lock();
+            try {
+                runs.removeAll(batch);
+                runs.add(merged);
+            } finally {
+                lock.unlock();
+            }
+            sorted.subList(0, MAX_FAN_IN).clear();
+            sorted.add(merged);
+        }
+
+        List<RunReader> sources = new ArrayList<>();
+        try {
+            for (Path run : sorted) sources.add(new FileRunReader(run));
+            sources.add(new ListRunReader(tail));
+            String separator = System.lineSeparator();
+            return merge(sources, message -> {
+                out.write(message);
+                out.write(separator);
+            });
+        } finally {
+            closeAll(sources);
+        }
+    }
+
+    /**
+     * @return number of messages accepted
+     */
+    public long count() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of runs written to disk while messages were accepted
+     */
+    public int spilledRuns() {
+        lock.lock();
+        try {
+            return spilledRuns;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return temporary files of the runs currently on disk
+     */
+    List<Path> runs() {
+        lock.lock();
+        try {
+            return new ArrayList<>(runs);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the spiller and deletes the temporary runs, including one it was still writing.
+     */
+    @Override
+    public void close() throws IOException {
+        Future<?> previous;
+        lock.lock();
+        try {
+            sealed = true;
+            previous = lastSpill;
+        } finally {
+            lock.unlock();
+        }
+        spiller.shutdown();
+        IOException failure = null;
+        if (previous != null) {
+            try {
+                awaitSpill(previous);
+            } catch (IOException e) {
+                // Already reported to the thread that delivered the message
+            }
+        }
+        lock.lock();
+        try {
+            for (Path run : runs) {
+                try {
+                    Files.deleteIfExists(run);
+                } catch (IOException e) {
+                    if (failure == null) failure = e;
+                }
+            }
+            runs.clear();
+        } finally {
+            lock.unlock();
+        }
+        if (failure != null) throw failure;
+    }
+
+    private Path mergeRuns(List<Path> batch) throws IOException {
+        Path merged = Files.createTempFile(tempDir, "crawl-run-", ".bin");
+        List<RunReader> sources = new ArrayList<>();
+        try (DataOutputStream out = openRun(merged)) {
+            for (Path run : batch) sources.add(new FileRunReader(run));
+            merge(sources, message -> writeString(out, message));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(merged);
+            throw e;
+        } finally {
+            closeAll(sources);
+        }
+        for (Path run : batch) Files.deleteIfExists(run);
+        return merged;
+    }
+
+    /**
+     * Sorts the run and writes it to a new temporary file; runs on the spiller.
+     */
+    private void writeRun(List<String> run) throws IOException {
+        run.sort(null);
+        Path file = Files.createTempFile(tempDir, "crawl-run-", ".bin");
+        try (DataOutputStream out = openRun(file)) {
+            for (String message : run) writeString(out, message);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        lock.lock();
+        try {
+            runs.add(file);
+            spilledRuns++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Not Files.newOutputStream: its channel would be closed if the writing thread
+     * were interrupted.
+     */
+    private static DataOutputStream openRun(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), IO_BUFFER_BYTES));
+    }
+
+    private interface MessageWriter {
+        void write(String message) throws IOException;
+    }
+
+    private record Head(String message, RunReader source) {}
+
+    private static long merge(List<RunReader> sources, MessageWriter out) throws IOException {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (a, b) -> a.message().compareTo(b.message()));
+        for (RunReader source : sources) {
+            String first = source.next();
+            if (first != null) heads.add(new Head(first, source));
+        }
+        long written = 0;
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            out.write(head.message());
+            written++;
+            String next = head.source().next();
+            if (next != null) heads.add(new Head(next, head.source()));
+        }
+        return written;
+    }
+
+    private static void closeAll(List<RunReader> sources) throws IOException {
+        for (RunReader source : sources) source.close();
+    }
+
+    private interface RunReader extends Closeable {
+        /**
+         * @return next message of the run, or null at its end
+         */
+        String next() throws IOException;
+    }
+
+    private static final class FileRunReader implements RunReader {
+        private final DataInputStream in;
+
+        FileRunReader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile()), IO_BUFFER_BYTES));
+        }
+
+        @Override
+        public String next() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class ListRunReader implements RunReader {
+        private final Iterator<String> messages;
+
+        ListRunReader(List<String> messages) {
+            this.messages = messages.iterator();
+        }
+
+        @Override
+        public String next() {
+            return messages.hasNext() ? messages.next() : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
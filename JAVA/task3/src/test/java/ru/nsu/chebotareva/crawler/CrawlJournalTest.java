@@ -0,0 +1,227 @@
+package ru.nsu.chebotareva.crawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlJournalTest {
+    private static final URI BASE = URI.create("http://localhost:8080/");
+
+    @Test
+    void restoresVisitedFetchedAndFrontier() throws Exception {
+        Path file = Files.createTempDirectory("journal-test").resolve("crawl.journal");
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, false)) {
+            for (String path : List.of("/", "/a", "/b", "/c")) journal.discovered(path);
+            journal.fetched("/", "m0");
+            journal.fetched("/a", null);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, true)) {
+            assertEquals(4, journal.restoredVisitedCount());
+            // A page without a message counts as fetched but adds no message
+            assertEquals(2, journal.restoredFetchedCount());
+            assertEquals(List.of("/b", "/c"), journal.restoredFrontier());
+            assertEquals(List.of("m0"), journal.restoredMessages());
+        }
+    }
+
+    @Test
+    void startsOverWithoutResume() throws Exception {
+        Path file = Files.createTempDirectory("journal-test").resolve("crawl.journal");
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, false)) {
+            journal.discovered("/");
+            journal.fetched("/", "m0");
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, false)) {
+            assertEquals(0, journal.restoredVisitedCount());
+        }
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, true)) {
+            assertEquals(0, journal.restoredVisitedCount());
+            assertEquals(0, journal.restoredFetchedCount());
+        }
+    }
+
+    @Test
+    void dropsTornTailAndAppendsAfterValidRecords() throws Exception {
+        Path file = Files.createTempDirectory("journal-test").resolve("crawl.journal");
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, false)) {
+            journal.discovered("/");
+            journal.discovered("/a");
+            journal.fetched("/", "m0");
+            journal.fetched("/a", "m1");
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, true)) {
+            assertEquals(2, journal.restoredVisitedCount());
+            assertEquals(1, journal.restoredFetchedCount());
+            assertEquals(List.of("/a"), journal.restoredFrontier());
+            journal.fetched("/a", "again");
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, true)) {
+            assertEquals(2, journal.restoredFetchedCount());
+            assertEquals(List.of(), journal.restoredFrontier());
+            assertEquals(List.of("m0", "again"), journal.restoredMessages());
+        }
+    }
+
+    @Test
+    void treatsLengthPastEndOfFileAsTornRecord() throws Exception {
+        Path file = Files.createTempDirectory("journal-test").resolve("crawl.journal");
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, false)) {
+            journal.discovered("/");
+        }
+        long validEnd = Files.size(file);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND))) {
+            out.writeByte('D');
+            out.writeInt(Integer.MAX_VALUE - 8);
+            out.write(new byte[16]);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, true)) {
+            assertEquals(1, journal.restoredVisitedCount());
+        }
+        assertEquals(validEnd, Files.size(file));
+    }
+
+    @Test
+    void rejectsCorruptedHeader() throws Exception {
+        Path file = Files.createTempDirectory("journal-test").resolve("crawl.journal");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0x434A3031);
+            out.writeInt(Integer.MAX_VALUE - 8);
+            out.write(new byte[16]);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> CrawlJournal.open(file, BASE, true));
+        assertTrue(e.getMessage().startsWith("Corrupted crawl journal"), e.getMessage());
+    }
+
+    @Test
+    void rejectsJournalOfAnotherBaseUrl() throws Exception {
+        Path file = Files.createTempDirectory("journal-test").resolve("crawl.journal");
+        try (CrawlJournal journal = CrawlJournal.open(file, BASE, false)) {
+            journal.discovered("/");
+        }
+
+        IOException e = assertThrows(IOException.class,
+                () -> CrawlJournal.open(file, URI.create("http://localhost:9090/"), true));
+        assertTrue(e.getMessage().contains("belongs to a crawl of " + BASE), e.getMessage());
+    }
+
+    @Test
+    void resumesCancelledCrawlWithoutRefetching() throws Exception {
+        HttpClient http = HttpClient.newHttpClient();
+        resumeCancelledCrawl(options -> new AsyncCrawler(http, options));
+        resumeCancelledCrawl(options -> new NonBlockingCrawler(http, options));
+    }
+
+    /**
+     * Crawls "/" linking to /p0../p9, where /p5../p9 hang until the first session
+     * has timed out, then resumes from the journal.
+     */
+    private static void resumeCancelledCrawl(Function<CrawlOptions, Crawler> engine) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 64);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> serve(exchange, requests, release));
+        server.start();
+        Path file = Files.createTempDirectory("journal-test").resolve("crawl.journal");
+        URI base = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        try {
+            Set<String> first = ConcurrentHashMap.newKeySet();
+            try (CrawlJournal journal = CrawlJournal.open(file, base, false)) {
+                CrawlSummary summary = engine.apply(options(journal))
+                        .crawl(base, false, 16, Duration.ofSeconds(1), first::add);
+                assertTrue(summary.timedOut(), "The first session should time out on the hanging pages");
+            }
+            assertEquals(6, first.size());
+
+            release.countDown();
+            List<String> second = Collections.synchronizedList(new ArrayList<>());
+            try (CrawlJournal journal = CrawlJournal.open(file, base, true)) {
+                assertEquals(11, journal.restoredVisitedCount());
+                assertEquals(6, journal.restoredFetchedCount());
+                CrawlSummary summary = engine.apply(options(journal))
+                        .crawl(base, false, 16, Duration.ofSeconds(10), second::add);
+                assertFalse(summary.timedOut());
+            }
+
+            Set<String> expected = new HashSet<>();
+            expected.add("message-root");
+            for (int i = 0; i < 10; i++) expected.add("message-" + i);
+            assertEquals(11, second.size());
+            assertEquals(expected, new HashSet<>(second));
+            assertEquals(1, requests.get("/").get());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(1, requests.get("/p" + i).get(), "/p" + i + " fetched again");
+            }
+        } finally {
+            release.countDown();
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private static CrawlOptions options(CrawlJournal journal) {
+        return new CrawlOptions(journal, VisitedSet.Strategy.EXACT, 1e-6, false, RequestPolicy.DEFAULT, false);
+    }
+
+    private static void serve(HttpExchange exchange, Map<String, AtomicInteger> requests, CountDownLatch release)
+            throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            String body;
+            if (path.equals("/")) {
+                StringBuilder sb = new StringBuilder("{\"message\":\"message-root\",\"successors\":[");
+                for (int i = 0; i < 10; i++) sb.append(i > 0 ? "," : "").append("\"/p").append(i).append('"');
+                body = sb.append("]}").toString();
+            } else if (path.startsWith("/p")) {
+                int page = Integer.parseInt(path.substring(2));
+                if (page >= 5) release.await();
+                body = "{\"message\":\"message-" + page + "\",\"successors\":[\"/\"]}";
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.nsu.chebotareva.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisitedSetTest {
+
+    @Test
+    void exactStrategiesAddEveryPathOnceUnderConcurrentAdds() throws Exception {
+        for (VisitedSet.Strategy strategy : List.of(VisitedSet.Strategy.EXACT, VisitedSet.Strategy.FINGERPRINT)) {
+            int paths = 200_000;
+            VisitedSet set = VisitedSet.create(strategy, 1e-6);
+            AtomicIntegerArray added = addConcurrently(set, paths, 4);
+
+            for (int i = 0; i < paths; i++) {
+                assertEquals(1, added.get(i), strategy + ": /page/" + i + " added " + added.get(i) + " times");
+            }
+            assertEquals(paths, set.size());
+            assertFalse(set.add("/page/0"));
+        }
+    }
+
+    @Test
+    void bloomNeverReportsPathAsNewTwiceUnderConcurrentAdds() throws Exception {
+        int paths = 200_000;
+        VisitedSet set = VisitedSet.create(VisitedSet.Strategy.BLOOM, 1e-3);
+        AtomicIntegerArray added = addConcurrently(set, paths, 4);
+
+        long newPaths = 0;
+        for (int i = 0; i < paths; i++) {
+            assertTrue(added.get(i) <= 1, "/page/" + i + " added " + added.get(i) + " times");
+            newPaths += added.get(i);
+        }
+        assertEquals(newPaths, set.size());
+    }
+
+    @Test
+    void bloomKeepsFalsePositiveRateWithinTarget() {
+        double fpp = 0.01;
+        VisitedSet set = VisitedSet.create(VisitedSet.Strategy.BLOOM, fpp);
+        // Several times the first filter's capacity, so the chain has grown
+        int paths = 500_000;
+        int missed = 0;
+        for (int i = 0; i < paths; i++) {
+            if (!set.add("/page/" + i)) missed++;
+        }
+        for (int i = 0; i < paths; i++) {
+            assertFalse(set.add("/page/" + i), "False negative for /page/" + i);
+        }
+
+        int probes = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (!set.add("/other/" + i)) falsePositives++;
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate <= fpp, "False-positive rate " + rate + " above target " + fpp);
+        assertTrue((double) missed / paths <= fpp, "Paths lost while filling: " + missed);
+    }
+
+    /**
+     * Every thread adds all paths, each starting at a different offset.
+     * @return number of adds that reported each path as new
+     */
+    private static AtomicIntegerArray addConcurrently(VisitedSet set, int paths, int threads) throws Exception {
+        AtomicIntegerArray added = new AtomicIntegerArray(paths);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * paths / threads;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < paths; i++) {
+                    int page = (offset + i) % paths;
+                    if (set.add("/page/" + page)) added.incrementAndGet(page);
+                }
+            }, "spec-visited-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) worker.join();
+        return added;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.nsu.chebotareva.sort;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSorterTest {
+    /** Heap the sorter counts for an 8-character message */
+    private static final long ENTRY_BYTES = 48 + 8;
+
+    @Test
+    void mergesSpilledRunsWithInMemoryTail() throws Exception {
+        Path dir = Files.createTempDirectory("sorter-test");
+        List<String> expected = Collections.synchronizedList(new ArrayList<>());
+        try (ExternalSorter sorter = new ExternalSorter(dir, 10 * ENTRY_BYTES)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                Thread thread = new Thread(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 1003; i++) {
+                        String message = String.format("%08d", random.nextInt(100_000_000));
+                        expected.add(message);
+                        sorter.accept(message);
+                    }
+                }, "spec-sender-" + t);
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) thread.join();
+
+            List<String> sorted = writeSorted(sorter);
+            Collections.sort(expected);
+            assertEquals(expected, sorted);
+            assertEquals(4012, sorter.count());
+            assertTrue(sorter.spilledRuns() >= 300, "Expected spilled runs, got " + sorter.spilledRuns());
+        }
+    }
+
+    @Test
+    void mergesInSeveralPassesWhenRunsExceedFanIn() throws Exception {
+        Path dir = Files.createTempDirectory("sorter-test");
+        int messages = 3 * ExternalSorter.MAX_FAN_IN + 5;
+        List<String> expected = new ArrayList<>();
+        // Every message fills the buffer, so each one becomes a run of its own
+        try (ExternalSorter sorter = new ExternalSorter(dir, 1)) {
+            for (int i = 0; i < messages; i++) {
+                String message = String.format("%08d", i * 7919 % messages);
+                expected.add(message);
+                sorter.accept(message);
+            }
+
+            List<String> sorted = writeSorted(sorter);
+            Collections.sort(expected);
+            assertEquals(expected, sorted);
+            assertEquals(messages, sorter.spilledRuns());
+            assertTrue(sorter.runs().size() < ExternalSorter.MAX_FAN_IN);
+            // Merged runs replace the ones they were made of
+            assertEquals(sorter.runs().size(), countFiles(dir));
+        }
+        assertEquals(0, countFiles(dir));
+    }
+
+    @Test
+    void dropsMessagesAfterWriteSortedStarted() throws Exception {
+        Path dir = Files.createTempDirectory("sorter-test");
+        try (ExternalSorter sorter = new ExternalSorter(dir, 2 * ENTRY_BYTES)) {
+            for (String s : Arrays.asList("delta0000", "alpha000", "charlie0")) sorter.accept(s);
+            assertEquals(Arrays.asList("alpha000", "charlie0", "delta0000"), writeSorted(sorter));
+
+            sorter.accept("bravo000");
+            sorter.accept("echo0000");
+            sorter.accept("foxtrot0");
+            assertEquals(3, sorter.count());
+            assertEquals(1, sorter.spilledRuns());
+        }
+    }
+
+    @Test
+    void closeDeletesRunsWithoutWriteSorted() throws Exception {
+        Path dir = Files.createTempDirectory("sorter-test");
+        ExternalSorter sorter = new ExternalSorter(dir, 5 * ENTRY_BYTES);
+        for (int i = 0; i < 100; i++) sorter.accept(String.format("%08d", i));
+        assertTrue(countFiles(dir) > 0, "Runs should have been spilled");
+
+        sorter.close();
+        assertEquals(0, countFiles(dir));
+        assertTrue(sorter.runs().isEmpty());
+        sorter.accept("00000100");
+        assertEquals(100, sorter.count());
+    }
+
+    private static List<String> writeSorted(ExternalSorter sorter) throws Exception {
+        StringWriter out = new StringWriter();
+        long written = sorter.writeSorted(out);
+        List<String> lines = out.toString().lines().toList();
+        assertEquals(written, lines.size());
+        return lines;
+    }
+
+    private static long countFiles(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}